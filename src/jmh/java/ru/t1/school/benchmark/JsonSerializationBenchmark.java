@@ -0,0 +1,59 @@
+package ru.t1.school.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.t1.school.dto.TaskDTO;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк JSON-сериализации {@link TaskDTO} (тела HTTP-запросов и ответов) с {@link ObjectMapper}
+ * в настройках Spring Boot по умолчанию. Форматы сообщений Kafka сравниваются в {@link TaskStatusSerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectWriter taskWriter;
+    private ObjectReader taskReader;
+
+    private TaskDTO taskDTO;
+    private byte[] taskJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        taskWriter = objectMapper.writerFor(TaskDTO.class);
+        taskReader = objectMapper.readerFor(TaskDTO.class);
+
+        taskDTO = new TaskDTO(1L, "Task 1", "Description 1", 1L, "NEW", 0L);
+        taskJson = taskWriter.writeValueAsBytes(taskDTO);
+    }
+
+    @Benchmark
+    public byte[] serializeTask() throws IOException {
+        return taskWriter.writeValueAsBytes(taskDTO);
+    }
+
+    @Benchmark
+    public TaskDTO deserializeTask() throws IOException {
+        return taskReader.readValue(taskJson);
+    }
+}
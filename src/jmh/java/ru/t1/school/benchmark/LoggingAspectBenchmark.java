@@ -0,0 +1,70 @@
+package ru.t1.school.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import ru.t1.school.aspect.LoggingAspect;
+import ru.t1.school.aspect.PayloadLoggingSettings;
+import ru.t1.school.controller.TaskController;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.service.TaskService;
+import ru.t1.school.service.TaskStatusBroadcaster;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк накладных расходов {@link LoggingAspect} на вызов методов {@link TaskController}.
+ * <p>
+ * Один и тот же контроллер вызывается напрямую и через AOP-прокси с аспектом; сервис задач
+ * заменен заглушкой, поэтому разница между результатами — стоимость прокси и всех advice.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+    private TaskController direct;
+    private TaskController proxied;
+
+    @Setup
+    public void setUp() {
+        TaskDTO taskDTO = new TaskDTO(1L, "Task 1", "Description 1", 1L, "NEW", 0L);
+        TaskService taskService = Mockito.mock(TaskService.class, Mockito.withSettings()
+                .stubOnly()
+                .defaultAnswer(invocation -> taskDTO));
+        direct = new TaskController(taskService, Mockito.mock(TaskStatusBroadcaster.class), new ObjectMapper(),
+                Mockito.mock(Validator.class), 500);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(direct);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new LoggingAspect(new SimpleMeterRegistry(), new PayloadLoggingSettings(false, 0.01, 1000)));
+        proxied = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public ResponseEntity<TaskDTO> direct() {
+        return direct.getTaskById(1L, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<TaskDTO> proxied() {
+        return proxied.getTaskById(1L, null);
+    }
+}
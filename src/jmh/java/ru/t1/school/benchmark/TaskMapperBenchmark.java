@@ -0,0 +1,52 @@
+package ru.t1.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.entity.Task;
+import ru.t1.school.mapper.TaskMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк преобразований между сущностью {@link Task} и {@link TaskDTO}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMapperBenchmark {
+
+    private Task task;
+    private TaskDTO taskDTO;
+
+    @Setup
+    public void setUp() {
+        task = new Task();
+        task.setId(1L);
+        task.setTitle("Task 1");
+        task.setDescription("Description 1");
+        task.setUserId(1L);
+        taskDTO = TaskMapper.INSTANCE.toDTO(task);
+    }
+
+    @Benchmark
+    public TaskDTO toDTO() {
+        return TaskMapper.INSTANCE.toDTO(task);
+    }
+
+    @Benchmark
+    public Task toEntity() {
+        return TaskMapper.INSTANCE.toEntity(taskDTO);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.t1.school.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.t1.school.SchoolApplication;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPageDTO;
+import ru.t1.school.service.TaskService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк CRUD-операций {@link TaskService} со встроенной базой данных H2 в режиме совместимости с PostgreSQL.
+ * <p>
+ * Поднимается полный контекст приложения без веб-сервера, параметры встроенной базы передаются
+ * аргументами командной строки, чтобы перекрыть {@code application.yml}; Kafka-слушатели не запускаются,
+ * а публикация событий из outbox отложена, чтобы измерялась только работа с базой и кэшем.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskServiceBenchmark {
+
+    private static final int PRELOADED_TASKS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private long firstId;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--spring.kafka.admin.auto-create=false",
+                        "--kafka.listener.auto-startup=false",
+                        "--outbox.relay.interval-ms=3600000",
+                        "--logging.level.root=WARN");
+        taskService = context.getBean(TaskService.class);
+        for (int i = 0; i < PRELOADED_TASKS; i++) {
+            TaskDTO created = taskService.createTask(newTask(i));
+            if (i == 0) {
+                firstId = created.getId();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TaskDTO createTask() {
+        return taskService.createTask(newTask(next++));
+    }
+
+    @Benchmark
+    public TaskDTO getTaskByIdCached() {
+        return taskService.getTaskById(nextPreloadedId());
+    }
+
+    @Benchmark
+    public TaskPageDTO getTasksPage() {
+        return taskService.getTasks(null, null, null, null, 50);
+    }
+
+    @Benchmark
+    public TaskDTO updateTask() {
+        long id = nextPreloadedId();
+        return taskService.updateTask(id, new TaskDTO(id, "Updated task " + id, "Updated description", 1L, "NEW", null), null);
+    }
+
+    @Benchmark
+    public void createAndDeleteTask() {
+        taskService.deleteTask(taskService.createTask(newTask(next++)).getId(), null);
+    }
+
+    private long nextPreloadedId() {
+        return firstId + (next++ % PRELOADED_TASKS);
+    }
+
+    private static TaskDTO newTask(long i) {
+        return new TaskDTO(null, "Task " + i, "Description " + i, 1L, "NEW", null);
+    }
+}
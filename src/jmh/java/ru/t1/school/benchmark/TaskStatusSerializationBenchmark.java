@@ -0,0 +1,120 @@
+package ru.t1.school.benchmark;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.t1.school.dto.TaskStatusDTO;
+import ru.t1.school.serialization.TaskStatusDeserializer;
+import ru.t1.school.serialization.TaskStatusSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение форматов сообщений {@link TaskStatusDTO} в топике статусов задач.
+ * <p>
+ * {@code legacyJson*} — прежний путь: {@link JsonSerializer}/{@link JsonDeserializer} Spring Kafka
+ * с заголовками типа; {@code json*} и {@code binary*} — {@link TaskStatusSerializer} в соответствующем
+ * формате и {@link TaskStatusDeserializer}. Размеры сообщений каждого формата выводятся при запуске.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskStatusSerializationBenchmark {
+
+    private static final String TOPIC = "task-status";
+
+    private JsonSerializer<TaskStatusDTO> legacySerializer;
+    private JsonDeserializer<TaskStatusDTO> legacyDeserializer;
+    private TaskStatusSerializer jsonSerializer;
+    private TaskStatusSerializer binarySerializer;
+    private TaskStatusDeserializer deserializer;
+
+    private TaskStatusDTO taskStatusDTO;
+    private Headers legacyHeaders;
+    private byte[] legacyJson;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        legacySerializer = new JsonSerializer<>();
+        legacyDeserializer = new JsonDeserializer<>();
+        legacyDeserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.REMOVE_TYPE_INFO_HEADERS, false), false);
+        jsonSerializer = new TaskStatusSerializer(TaskStatusSerializer.Format.JSON);
+        binarySerializer = new TaskStatusSerializer(TaskStatusSerializer.Format.BINARY);
+        deserializer = new TaskStatusDeserializer();
+
+        taskStatusDTO = new TaskStatusDTO(7890123L, 123456L, "IN_PROGRESS", "NEW", "Task status changed from NEW to IN_PROGRESS",
+                1_700_000_000_000L, 42L);
+        legacyHeaders = new RecordHeaders();
+        legacyJson = legacySerializer.serialize(TOPIC, legacyHeaders, taskStatusDTO);
+        json = jsonSerializer.serialize(TOPIC, taskStatusDTO);
+        binary = binarySerializer.serialize(TOPIC, taskStatusDTO);
+
+        int headersSize = 0;
+        for (var header : legacyHeaders) {
+            headersSize += header.key().getBytes(StandardCharsets.UTF_8).length + header.value().length;
+        }
+        System.out.printf("%nSerialized size: legacy json %d bytes + %d bytes of type headers, json %d bytes, binary %d bytes%n",
+                legacyJson.length, headersSize, json.length, binary.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        legacySerializer.close();
+        legacyDeserializer.close();
+        jsonSerializer.close();
+        binarySerializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] legacyJsonSerialize() {
+        return legacySerializer.serialize(TOPIC, new RecordHeaders(), taskStatusDTO);
+    }
+
+    @Benchmark
+    public TaskStatusDTO legacyJsonDeserialize() {
+        return legacyDeserializer.deserialize(TOPIC, legacyHeaders, legacyJson);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, taskStatusDTO);
+    }
+
+    @Benchmark
+    public TaskStatusDTO jsonDeserialize() {
+        return deserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(TOPIC, taskStatusDTO);
+    }
+
+    @Benchmark
+    public TaskStatusDTO binaryDeserialize() {
+        return deserializer.deserialize(TOPIC, binary);
+    }
+}
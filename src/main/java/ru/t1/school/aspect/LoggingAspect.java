@@ -1,14 +1,31 @@
 package ru.t1.school.aspect;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import ru.t1.school.dto.TaskPageDTO;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
- * Аспект для логирования выполнения методов контроллера задач.
+ * Аспект для логирования и измерения времени выполнения методов контроллера задач.
+ * <p>
+ * Время выполнения каждого метода записывается в гистограмму {@code task.controller.latency}
+ * (перцентили p50/p99/p999), ошибки считаются счетчиком {@code task.controller.errors}.
+ * Аргументы и результаты логируются только для выборки запросов, которая настраивается
+ * через {@link PayloadLoggingSettings}.
+ * </p>
  */
 @Aspect
 @Component
@@ -16,40 +33,40 @@ public class LoggingAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
 
-    /**
-     * Логирует сообщение перед выполнением любого метода в TaskController.
-     *
-     * @param joinPoint точка соединения, представляющая выполнение метода
-     */
-    @Before("execution(* ru.t1.school.controller.TaskController.*(..))")
-    public void logBefore(JoinPoint joinPoint) {
-        String methodName = joinPoint.getSignature().getName();
-        Object[] methodArgs = joinPoint.getArgs();
-        logger.info("A request is about to be processed. Method: {}. Arguments: {}", methodName, methodArgs);
+    private final MeterRegistry meterRegistry;
+    private final PayloadLoggingSettings payloadLogging;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public LoggingAspect(MeterRegistry meterRegistry, PayloadLoggingSettings payloadLogging) {
+        this.meterRegistry = meterRegistry;
+        this.payloadLogging = payloadLogging;
     }
 
     /**
-     * Логирует исключение, выброшенное любым методом в TaskController.
+     * Считает и логирует исключение, выброшенное любым методом в TaskController.
      *
+     * @param joinPoint точка соединения, представляющая выполнение метода
      * @param exception выброшенное исключение
      */
     @AfterThrowing(pointcut = "execution(* ru.t1.school.controller.TaskController.*(..))", throwing = "exception")
-    public void logAfterThrowing(Exception exception) {
+    public void logAfterThrowing(JoinPoint joinPoint, Exception exception) {
+        String method = joinPoint.getSignature().getName();
+        errorCounters.computeIfAbsent(method + ':' + exception.getClass().getSimpleName(), key -> Counter.builder("task.controller.errors")
+                .description("Количество исключений, выброшенных методами контроллера задач")
+                .tag("method", method)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(meterRegistry)).increment();
         logger.error("An exception occurred: {}", exception.getMessage());
     }
 
     /**
-     * Логирует результат выполнения любого метода в TaskController после его успешного выполнения.
-     *
-     * @param result результат, возвращенный методом
-     */
-    @AfterReturning(pointcut = "execution(* ru.t1.school.controller.TaskController.*(..))", returning = "result")
-    public void logAfterReturning(Object result) {
-        logger.info("A request was successfully processed. Result: {}", result);
-    }
-
-    /**
-     * Логирует время, затраченное на выполнение любого метода в TaskController.
+     * Записывает время, затраченное на выполнение любого метода в TaskController, в гистограмму.
+     * <p>
+     * Если вызов попал в выборку, логирует его аргументы перед выполнением и результат после успешного
+     * выполнения. Решение о выборке принимается один раз на вызов, поэтому в логе есть либо обе записи
+     * вызова, либо ни одной.
+     * </p>
      *
      * @param joinPoint точка соединения, представляющая выполнение метода
      * @return результат выполнения метода
@@ -57,10 +74,54 @@ public class LoggingAspect {
      */
     @Around("execution(* ru.t1.school.controller.TaskController.*(..))")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-        Object result = joinPoint.proceed();
-        long timeTaken = System.currentTimeMillis() - startTime;
-        logger.info("Time taken by {} is {} ms", joinPoint.getSignature(), timeTaken);
+        boolean sampled = payloadLogging.sample();
+        if (sampled) {
+            logger.info("A request is about to be processed. Method: {}. Arguments: {}",
+                    joinPoint.getSignature().getName(),
+                    Arrays.stream(joinPoint.getArgs()).map(this::summarize).collect(Collectors.joining(", ", "[", "]")));
+        }
+        long startTime = System.nanoTime();
+        String outcome = "success";
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            timer(joinPoint.getSignature().getName(), outcome).record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+        if (sampled) {
+            logger.info("A request was successfully processed. Method: {}. Result: {}",
+                    joinPoint.getSignature().getName(), summarize(result));
+        }
         return result;
     }
-}
\ No newline at end of file
+
+    private Timer timer(String method, String outcome) {
+        return timers.computeIfAbsent(method + ':' + outcome, key -> Timer.builder("task.controller.latency")
+                .description("Время выполнения методов контроллера задач")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Возвращает краткое представление значения: для коллекций и страниц задач только количество элементов.
+     */
+    private String summarize(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size() + " items";
+        }
+        if (result instanceof TaskPageDTO page) {
+            return page.getItems().size() + " items, next: " + page.getNext();
+        }
+        return abbreviate(String.valueOf(result));
+    }
+
+    private String abbreviate(String value) {
+        int maxLength = payloadLogging.getMaxLength();
+        return value.length() <= maxLength ? value : value.substring(0, maxLength) + "...";
+    }
+}
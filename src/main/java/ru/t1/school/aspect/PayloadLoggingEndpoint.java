@@ -0,0 +1,54 @@
+package ru.t1.school.aspect;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator-эндпоинт для включения и настройки выборочного логирования во время работы приложения.
+ * <p>
+ * Пример: {@code POST /actuator/payloadlogging {"enabled": true, "sampleRate": 0.01}}.
+ * </p>
+ */
+@Component
+@Endpoint(id = "payloadlogging")
+public class PayloadLoggingEndpoint {
+
+    private final PayloadLoggingSettings settings;
+
+    public PayloadLoggingEndpoint(PayloadLoggingSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Возвращает текущие настройки логирования.
+     *
+     * @return настройки логирования.
+     */
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of("enabled", settings.isEnabled(), "sampleRate", settings.getSampleRate());
+    }
+
+    /**
+     * Изменяет настройки логирования. Не переданные параметры остаются без изменений.
+     *
+     * @param enabled    признак включенного логирования.
+     * @param sampleRate доля логируемых запросов (от 0 до 1).
+     * @return новые настройки логирования.
+     */
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Boolean enabled, @Nullable Double sampleRate) {
+        if (enabled != null) {
+            settings.setEnabled(enabled);
+        }
+        if (sampleRate != null) {
+            settings.setSampleRate(sampleRate);
+        }
+        return settings();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.t1.school.aspect;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Настройки выборочного логирования аргументов и результатов методов контроллера задач.
+ * <p>
+ * Значения читаются из конфигурации при старте и могут быть изменены во время работы
+ * через {@link PayloadLoggingEndpoint}.
+ * </p>
+ */
+@Component
+public class PayloadLoggingSettings {
+
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+    private final int maxLength;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param enabled    признак включенного логирования.
+     * @param sampleRate доля запросов (от 0 до 1), для которых логируются аргументы и результат.
+     * @param maxLength  максимальная длина строкового представления результата в логе.
+     */
+    public PayloadLoggingSettings(@Value("${task.logging.payload.enabled}") boolean enabled,
+                                  @Value("${task.logging.payload.sample-rate}") double sampleRate,
+                                  @Value("${task.logging.payload.max-length}") int maxLength) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Определяет, нужно ли логировать данные текущего вызова.
+     *
+     * @return {@code true}, если логирование включено и вызов попал в выборку.
+     */
+    public boolean sample() {
+        return enabled && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+}
@@ -0,0 +1,175 @@
+package ru.t1.school.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный лимит количества одновременно обрабатываемых запросов.
+ * <p>
+ * Лимит подбирается по времени обработки запросов, как окно TCP Vegas: среднее время за окно из
+ * {@code windowSize} запросов сравнивается с наименьшим средним, наблюдавшимся без очереди. Их разница
+ * дает оценку количества запросов, ожидающих ресурсов (соединений с базой, брокера), а не
+ * обрабатываемых. Если очередь меньше трех шагов, лимит увеличивается на шаг, если больше шести —
+ * уменьшается; шаг равен десятичному логарифму лимита, но не меньше единицы. Если время обработки
+ * выросло больше чем вдвое, лимит уменьшается сразу пропорционально росту, но не более чем вдвое за окно.
+ * Лимит растет, только если запросов было не меньше половины лимита: иначе время обработки ничего
+ * не говорит о том, выдержит ли сервис больше.
+ * </p>
+ * <p>
+ * Наименьшее время заново измеряется раз в {@code probeInterval}, чтобы лимит не оставался заниженным,
+ * если запросы стали дольше по другим причинам, например, после изменения данных. Измерение выполняется
+ * на первом окне, в котором лимит не был исчерпан: время, измеренное с очередью перед лимитом,
+ * позволило бы лимиту расти при каждом сбросе.
+ * </p>
+ * <p>
+ * Время запросов накапливается без блокировок; блокировка берется только запросом, закрывающим окно,
+ * то есть один раз на {@code windowSize} запросов. Запросы, завершившиеся во время пересчета, попадают
+ * в следующее окно, а их время — в текущее или следующее, что на среднее за окно почти не влияет.
+ * </p>
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    /**
+     * Допустимое отношение времени обработки к наименьшему, при котором лимит уменьшается
+     * на небольшой шаг, а не пропорционально росту времени.
+     */
+    private static final double RTT_TOLERANCE = 2.0;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final long probeIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Накопление текущего окна, изменяется без блокировок
+    private final LongAdder windowRttSum = new LongAdder();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private final AtomicLong samples = new AtomicLong();
+
+    // Оценка лимита, изменяется под блокировкой объекта при закрытии окна
+    private double estimatedLimit;
+    private long rttNoLoad;
+    private long noLoadMeasuredAt;
+
+    /**
+     * Создает лимит.
+     *
+     * @param initialLimit  начальный лимит.
+     * @param minLimit      наименьший лимит.
+     * @param maxLimit      наибольший лимит.
+     * @param windowSize    количество запросов, по среднему времени которых пересчитывается лимит.
+     * @param probeInterval период сброса наименьшего времени обработки.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize, Duration probeInterval) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.noLoadMeasuredAt = System.nanoTime();
+    }
+
+    /**
+     * Занимает место для запроса, если лимит не исчерпан.
+     *
+     * @return {@code true}, если запрос можно обрабатывать; место нужно освободить методом
+     * {@link #release(long)} или {@link #release()}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место и учитывает время обработки запроса при подборе лимита.
+     *
+     * @param rttNanos время обработки запроса в наносекундах.
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(rttNanos, inFlightBefore);
+    }
+
+    /**
+     * Освобождает место, не учитывая время обработки: для запросов, время которых не отражает
+     * загрузку сервиса, например, потоковой выгрузки или завершившихся ошибкой.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Возвращает текущий лимит.
+     *
+     * @return количество запросов, которые можно обрабатывать одновременно.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Возвращает количество обрабатываемых запросов.
+     *
+     * @return количество занятых мест.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void sample(long rttNanos, int inFlightBefore) {
+        windowRttSum.add(rttNanos);
+        windowMaxInFlight.accumulateAndGet(inFlightBefore, Math::max);
+        // Счетчик не сбрасывается: окно закрывает запрос, на котором он достиг очередного кратного размеру окна
+        if (samples.incrementAndGet() % windowSize == 0) {
+            closeWindow();
+        }
+    }
+
+    private synchronized void closeWindow() {
+        long rtt = Math.max(1, windowRttSum.sumThenReset() / windowSize);
+        int maxInFlight = windowMaxInFlight.getAndSet(0);
+
+        long now = System.nanoTime();
+        boolean probe = now - noLoadMeasuredAt >= probeIntervalNanos && maxInFlight < limit;
+        if (rttNoLoad == 0 || probe) {
+            rttNoLoad = rtt;
+            noLoadMeasuredAt = now;
+            return;
+        }
+        if (rtt < rttNoLoad) {
+            rttNoLoad = rtt;
+        }
+
+        double current = estimatedLimit;
+        double step = Math.max(1, Math.log10(current));
+        double queue = current * (1 - (double) rttNoLoad / rtt);
+        double next;
+        if (rtt > RTT_TOLERANCE * rttNoLoad) {
+            next = Math.min(current - step, Math.max(current / 2, current * RTT_TOLERANCE * rttNoLoad / rtt));
+        } else if (queue > 6 * step) {
+            next = current - step;
+        } else if (queue < 3 * step && maxInFlight * 2 >= current) {
+            next = current + step;
+        } else {
+            return;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.t1.school.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Фильтр, ограничивающий количество одновременно обрабатываемых запросов к задачам.
+ * <p>
+ * Чтения ({@code GET}, {@code HEAD}, {@code OPTIONS}) и изменения ограничиваются отдельными
+ * {@link AdaptiveConcurrencyLimit}, чтобы медленные записи не вытесняли чтения из кэша и наоборот.
+ * Запрос сверх лимита не ждет в очереди пула потоков, а сразу получает ответ {@code 503 Service Unavailable}
+ * с заголовком {@code Retry-After}. Поток событий {@code /tasks/stream} не ограничивается: его соединения
+ * открыты долго, и их количество ограничено отдельно. Время выгрузки, массовых операций и ответов с ошибкой
+ * сервера не учитывается при подборе лимита: первые зависят от объема данных, а не от загрузки сервиса,
+ * а ошибки бывают как быстрыми, так и медленными.
+ * </p>
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final String STREAM_PATH = "/tasks/stream";
+    private static final Set<String> UNSAMPLED_PATHS = Set.of("/tasks/export", "/tasks/bulk");
+
+    private final Group reads;
+    private final Group writes;
+    private final String retryAfter;
+
+    /**
+     * Создает фильтр и регистрирует его метрики.
+     *
+     * @param readLimit     лимит читающих запросов.
+     * @param writeLimit    лимит изменяющих запросов.
+     * @param retryAfter    время, через которое отклоненному клиенту стоит повторить запрос.
+     * @param meterRegistry реестр метрик.
+     */
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit readLimit, AdaptiveConcurrencyLimit writeLimit,
+                                  Duration retryAfter, MeterRegistry meterRegistry) {
+        this.reads = new Group("read", readLimit, meterRegistry);
+        this.writes = new Group("write", writeLimit, meterRegistry);
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return STREAM_PATH.equals(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = READ_METHODS.contains(request.getMethod()) ? reads : writes;
+        if (!group.limit.tryAcquire()) {
+            group.rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("Too many concurrent requests");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Выгрузка продолжается в другом потоке: место освобождается после ее завершения
+                request.getAsyncContext().addListener(new AsyncRelease(group.limit));
+            } else if (response.getStatus() >= 500 || UNSAMPLED_PATHS.contains(path(request))) {
+                group.limit.release();
+            } else {
+                group.limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Лимит группы запросов и его метрики.
+     */
+    private static final class Group {
+        private final AdaptiveConcurrencyLimit limit;
+        private final Counter rejected;
+
+        private Group(String name, AdaptiveConcurrencyLimit limit, MeterRegistry meterRegistry) {
+            this.limit = limit;
+            Gauge.builder("task.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Текущий лимит одновременно обрабатываемых запросов к задачам")
+                    .tag("group", name)
+                    .register(meterRegistry);
+            Gauge.builder("task.concurrency.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Количество обрабатываемых запросов к задачам")
+                    .tag("group", name)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("task.concurrency.rejected")
+                    .description("Количество запросов к задачам, отклоненных с ответом 503 из-за исчерпания лимита")
+                    .tag("group", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Освобождает место асинхронного запроса после его завершения.
+     */
+    private static final class AsyncRelease implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+
+        private AsyncRelease(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
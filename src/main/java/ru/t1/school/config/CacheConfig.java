@@ -0,0 +1,53 @@
+package ru.t1.school.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация локального кэша задач.
+ */
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Имя кэша задач, ключом которого является ID задачи.
+     */
+    public static final String TASKS_CACHE = "tasks";
+
+    @Value("${task.cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${task.cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    /**
+     * Создает менеджер кэшей на основе Caffeine.
+     * <p>
+     * Caffeine использует политику вытеснения W-TinyLFU, поэтому при ограниченном размере в кэше
+     * остаются наиболее часто запрашиваемые задачи. Менеджер обернут в
+     * {@link TransactionAwareCacheManagerProxy}, чтобы инвалидация выполнялась только после
+     * фиксации транзакции и в кэш не попадали незафиксированные данные.
+     * </p>
+     *
+     * @return менеджер кэшей.
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(TASKS_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.t1.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import ru.t1.school.concurrency.AdaptiveConcurrencyLimit;
+import ru.t1.school.concurrency.ConcurrencyLimitFilter;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация адаптивного ограничения количества одновременно обрабатываемых запросов к задачам.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "task.concurrency.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+
+    @Value("${task.concurrency.initial-limit}")
+    private int initialLimit;
+
+    @Value("${task.concurrency.min-limit}")
+    private int minLimit;
+
+    @Value("${task.concurrency.max-limit}")
+    private int maxLimit;
+
+    @Value("${task.concurrency.window-size}")
+    private int windowSize;
+
+    @Value("${task.concurrency.probe-interval}")
+    private Duration probeInterval;
+
+    @Value("${task.concurrency.retry-after}")
+    private Duration retryAfter;
+
+    /**
+     * Регистрирует фильтр, ограничивающий одновременные запросы к задачам.
+     * <p>
+     * Фильтр выполняется сразу после фильтра наблюдений Spring Boot, так что отклоненные запросы
+     * попадают в метрику {@code http.server.requests} и трассы, но не доходят до остальных фильтров.
+     * </p>
+     *
+     * @param meterRegistry реестр метрик.
+     * @return регистрация фильтра для запросов {@code /tasks}.
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(MeterRegistry meterRegistry) {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limit(), limit(), retryAfter, meterRegistry);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/tasks", "/tasks/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    private AdaptiveConcurrencyLimit limit() {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, windowSize, probeInterval);
+    }
+}
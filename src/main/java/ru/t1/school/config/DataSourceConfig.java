@@ -0,0 +1,123 @@
+package ru.t1.school.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.t1.school.datasource.ReadYourWritesFilter;
+import ru.t1.school.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Конфигурация чтения с реплик базы данных.
+ * <p>
+ * Действует, если заданы адреса реплик {@code task.datasource.replicas.urls}; иначе Spring Boot
+ * создает единственный пул соединений к основной базе. Транзакции с {@code readOnly = true} получают
+ * соединение реплики, остальные — основной базы. Реплики подключаются с теми же именем пользователя
+ * и паролем, что и основная база ({@code spring.datasource.*}).
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "task.datasource.replicas.urls")
+public class DataSourceConfig {
+
+    @Value("${task.datasource.replicas.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${task.datasource.replicas.strategy}")
+    private ReplicaRoutingDataSource.Strategy strategy;
+
+    @Value("${task.datasource.replicas.maximum-pool-size}")
+    private int replicaPoolSize;
+
+    @Value("${task.datasource.read-your-writes-window}")
+    private Duration readYourWritesWindow;
+
+    /**
+     * Создает пул соединений основной базы с настройками {@code spring.datasource.hikari.*}.
+     *
+     * @param properties параметры подключения к основной базе.
+     * @return пул соединений основной базы.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    /**
+     * Создает пулы соединений реплик и источник соединений, выбирающий между ними.
+     * <p>
+     * Пулы реплик не регистрируются как бины, поэтому метрики Hikari ({@code hikaricp.connections.*}
+     * с тегом {@code pool}) подключаются к ним здесь; для основной базы это делает Spring Boot.
+     * </p>
+     *
+     * @param properties        параметры подключения к основной базе.
+     * @param primaryDataSource пул соединений основной базы.
+     * @param meterRegistry     реестр метрик.
+     * @return источник соединений читающих транзакций.
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(DataSourceProperties properties, HikariDataSource primaryDataSource,
+                                                      MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, strategy, meterRegistry);
+    }
+
+    /**
+     * Создает источник соединений приложения.
+     * <p>
+     * Прокси откладывает получение соединения до первого запроса, когда признак {@code readOnly}
+     * транзакции уже известен, и берет соединение из пула реплик, если транзакция читающая.
+     * </p>
+     *
+     * @param primaryDataSource пул соединений основной базы.
+     * @param replicaDataSource источник соединений читающих транзакций.
+     * @return источник соединений.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Регистрирует фильтр, направляющий чтения клиента на основную базу после его изменений.
+     *
+     * @return регистрация фильтра для запросов {@code /tasks}.
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWritesWindow));
+        registration.addUrlPatterns("/tasks", "/tasks/*");
+        return registration;
+    }
+}
@@ -1,29 +1,41 @@
 package ru.t1.school.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
-import org.springframework.util.backoff.FixedBackOff;
 import ru.t1.school.dto.TaskStatusDTO;
+import ru.t1.school.serialization.TaskStatusDeserializer;
+import ru.t1.school.serialization.TaskStatusSerializer;
+import ru.t1.school.service.NotificationRetryRouter;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,7 +55,7 @@ public class KafkaConfig {
     private long interval;
 
     @Value("${kafka.error-handler.max-attempts}")
-    private long maxAttempts;
+    private int maxAttempts;
 
     @Value("${kafka.session-timeout-ms}")
     private int sessionTimeoutMs;
@@ -75,67 +87,146 @@ public class KafkaConfig {
     @Value("${kafka.producer.acks}")
     private String acks;
 
+    @Value("${kafka.producer.enable-idempotence}")
+    private boolean enableIdempotence;
+
+    @Value("${kafka.producer.linger-ms}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size}")
+    private int batchSize;
+
+    @Value("${kafka.producer.compression-type}")
+    private String compressionType;
+
+    @Value("${kafka.serialization.format}")
+    private TaskStatusSerializer.Format serializationFormat;
+
+    @Value("${kafka.listener.auto-startup}")
+    private boolean listenerAutoStartup;
+
     /**
      * Создает фабрику продюсеров Kafka.
+     * <p>
+     * Идемпотентный продюсер не создает дубликатов и не меняет порядок сообщений в разделе при повторных
+     * отправках. Сообщения накапливаются в пачки ({@code linger.ms}, {@code batch.size}) и сжимаются
+     * целиком, а метрики клиента Kafka регистрируются в {@link MeterRegistry}. Формат сообщений
+     * задается параметром {@code kafka.serialization.format}.
+     * </p>
      *
+     * @param meterRegistry реестр метрик.
      * @return фабрика продюсеров Kafka.
      */
     @Bean
-    public ProducerFactory<String, TaskStatusDTO> producerFactory() {
+    public ProducerFactory<String, TaskStatusDTO> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, acks);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, enableIdempotence);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        DefaultKafkaProducerFactory<String, TaskStatusDTO> producerFactory = new DefaultKafkaProducerFactory<>(configProps,
+                new StringSerializer(), new TaskStatusSerializer(serializationFormat));
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
     }
 
     /**
      * Создает шаблон Kafka для отправки сообщений.
      *
+     * @param producerFactory фабрика продюсеров Kafka.
      * @return шаблон Kafka.
      */
     @Bean
-    public KafkaTemplate<String, TaskStatusDTO> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, TaskStatusDTO> kafkaTemplate(ProducerFactory<String, TaskStatusDTO> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 
     /**
      * Создает фабрику контейнеров слушателей Kafka.
+     * <p>
+     * Слушатели получают сообщения пачками, а количество потоков-консьюмеров равно количеству
+     * разделов топика, чтобы каждый раздел обрабатывался своим потоком. При включенных виртуальных
+     * потоках ({@code spring.threads.virtual.enabled} на Java 21) консьюмеры работают в виртуальных потоках.
+     * </p>
      *
+     * @param environment  окружение приложения.
+     * @param errorHandler обработчик ошибок слушателей.
      * @return фабрика контейнеров слушателей Kafka.
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> kafkaListenerContainerFactory(Environment environment,
+                                                                                                        DefaultErrorHandler errorHandler) {
         ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(numPartitions);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setAutoStartup(listenerAutoStartup);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-listener-"));
+        }
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+
+    /**
+     * Создает фабрику контейнеров слушателей, которые получают все события топика статусов задач
+     * на каждом экземпляре приложения (сброс локального кэша, потоки {@code GET /tasks/stream}).
+     * <p>
+     * Такие слушатели назначают себе все разделы топика вручную ({@code @TopicPartition}) и работают
+     * без группы консьюмеров: смещения не сохраняются, поэтому слушатели не подтверждают сообщения,
+     * а чтение после запуска начинается с последних сообщений. В отличие от отдельной группы
+     * на каждый запуск, на брокере не остается групп от предыдущих запусков экземпляров.
+     * </p>
+     *
+     * @param environment окружение приложения.
+     * @return фабрика контейнеров слушателей Kafka без группы консьюмеров.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> broadcastListenerContainerFactory(Environment environment) {
+        Map<String, Object> configProps = consumerProperties();
+        configProps.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(configProps,
+                new StringDeserializer(), new ErrorHandlingDeserializer<>(new TaskStatusDeserializer())));
+        factory.setBatchListener(true);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        factory.setCommonErrorHandler(errorHandler());
+        factory.setAutoStartup(listenerAutoStartup);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-broadcast-"));
+        }
         return factory;
     }
 
     /**
      * Создает фабрику консьюмеров Kafka.
+     * <p>
+     * Консьюмеры читают сообщения как в JSON, так и в двоичном формате, независимо от настройки продюсера.
+     * </p>
      *
      * @return фабрика консьюмеров Kafka.
      */
     @Bean
     public ConsumerFactory<String, TaskStatusDTO> consumerFactory() {
+        return new DefaultKafkaConsumerFactory<>(consumerProperties(),
+                new StringDeserializer(), new ErrorHandlingDeserializer<>(new TaskStatusDeserializer()));
+    }
+
+    private Map<String, Object> consumerProperties() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class.getName());
-        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class.getName());
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, TaskStatusDTO.class.getName());
         configProps.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
         configProps.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
         configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         configProps.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, maxPollIntervalMs);
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, enableAutoCommit);
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        return configProps;
     }
 
     /**
@@ -148,14 +239,59 @@ public class KafkaConfig {
         return new NewTopic(taskStatusTopic, numPartitions, replicationFactor);
     }
 
+    /**
+     * Создает топики повторов и топик недоставленных сообщений.
+     *
+     * @param retryRouter маршрутизатор неудачных сообщений по топикам повторов.
+     * @return топики повторов и недоставленных сообщений.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(NotificationRetryRouter retryRouter) {
+        List<NewTopic> topics = new ArrayList<>();
+        retryRouter.getRetryTopics().forEach(name -> topics.add(new NewTopic(name, numPartitions, replicationFactor)));
+        topics.add(new NewTopic(retryRouter.getDeadLetterTopic(), numPartitions, replicationFactor));
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+
+    /**
+     * Проверяет и создает топики после запуска приложения, если это отключено при старте
+     * ({@code spring.kafka.admin.auto-create: false}, профиль {@code fast-startup}).
+     * <p>
+     * Подключение к брокеру выполняется в отдельном потоке и не задерживает прием HTTP-запросов;
+     * недоступность брокера записывается в лог и не останавливает приложение. Топики при этом
+     * должны быть созданы заранее: сообщение, отправленное до их создания, может привести
+     * к автоматическому созданию топика брокером с настройками по умолчанию.
+     * </p>
+     *
+     * @param kafkaAdmin администратор Kafka, созданный Spring Boot.
+     * @return слушатель события готовности приложения.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.kafka.admin.auto-create", havingValue = "false")
+    public ApplicationListener<ApplicationReadyEvent> deferredTopicCreation(KafkaAdmin kafkaAdmin) {
+        return event -> {
+            Thread thread = new Thread(kafkaAdmin::initialize, "kafka-topics-init");
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+
     /**
      * Создает обработчик ошибок для Kafka.
+     * <p>
+     * Обработчик срабатывает, только если слушатель выбросил исключение, а не на ошибки отправки писем,
+     * которые переносятся в топики повторов самим слушателем. Пачка повторяется с экспоненциально
+     * растущей паузой, а затем ее сообщения переносятся в следующий топик повторов.
+     * </p>
      *
+     * @param retryRouter маршрутизатор неудачных сообщений по топикам повторов.
      * @return обработчик ошибок для Kafka.
      */
     @Bean
-    public DefaultErrorHandler errorHandler() {
-        FixedBackOff fixedBackOff = new FixedBackOff(interval, maxAttempts);
-        return new DefaultErrorHandler(fixedBackOff);
+    public DefaultErrorHandler errorHandler(NotificationRetryRouter retryRouter) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxAttempts);
+        backOff.setInitialInterval(interval);
+        backOff.setMultiplier(2);
+        return new DefaultErrorHandler(retryRouter::forward, backOff);
     }
 }
\ No newline at end of file
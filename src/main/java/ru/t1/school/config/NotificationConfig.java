@@ -0,0 +1,49 @@
+package ru.t1.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Конфигурация пула потоков для отправки уведомлений.
+ */
+@Configuration
+public class NotificationConfig {
+
+    @Value("${notification.dispatch.pool-size}")
+    private int poolSize;
+
+    @Value("${notification.dispatch.queue-capacity}")
+    private int queueCapacity;
+
+    /**
+     * Создает ограниченный пул потоков для параллельной отправки писем.
+     * <p>
+     * Каждый поток отправляет письма через одно SMTP-соединение из {@link ru.t1.school.service.SmtpTransportPool}.
+     * При переполнении очереди задача выполняется в вызывающем потоке, что естественным образом
+     * замедляет сброс новых писем вместо неограниченного роста очереди.
+     * </p>
+     * <p>
+     * Пул остается на платформенных потоках и в режиме виртуальных потоков: методы {@code SMTPTransport}
+     * объявлены {@code synchronized}, поэтому на Java 21 виртуальный поток, ожидающий ответа SMTP-сервера,
+     * занимал бы поток-носитель. Количество одновременных отправок все равно ограничено числом
+     * SMTP-соединений, так что виртуальные потоки здесь не дали бы выигрыша.
+     * </p>
+     *
+     * @return пул потоков для отправки уведомлений.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor notificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.t1.school.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+
+/**
+ * Конфигурация реактивного варианта API задач (профиль {@code reactive}).
+ * <p>
+ * HTTP-запросы обрабатываются WebFlux на Netty, а задачи читаются и записываются через R2DBC.
+ * Фабрика R2DBC-соединений намеренно не регистрируется как бин: при ее наличии Spring Boot
+ * не создает {@code DataSource}, а JDBC по-прежнему нужен для outbox, слушателей Kafka и остальных компонентов.
+ * По той же причине менеджер реактивных транзакций доступен только через {@link TransactionalOperator}.
+ * </p>
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig implements DisposableBean {
+
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveConfig(@Value("${spring.r2dbc.url}") String url,
+                          @Value("${spring.r2dbc.username}") String username,
+                          @Value("${spring.r2dbc.password}") String password) {
+        this.connectionFactory = ConnectionFactoryBuilder.withUrl(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    /**
+     * Создает фабрику веб-сервера Netty, чтобы реактивный API не запускался на Tomcat,
+     * который тоже есть в classpath.
+     *
+     * @return фабрика реактивного веб-сервера.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Создает клиент для выполнения SQL-запросов через R2DBC.
+     *
+     * @return клиент базы данных.
+     */
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Создает оператор реактивных транзакций поверх R2DBC-соединений.
+     *
+     * @return оператор транзакций.
+     */
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+}
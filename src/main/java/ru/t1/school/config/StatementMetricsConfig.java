@@ -0,0 +1,103 @@
+package ru.t1.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.t1.school.datasource.StatementMetrics;
+import ru.t1.school.datasource.StatementStatisticsEndpoint;
+import ru.t1.school.datasource.StatementStatisticsFilter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Конфигурация метрик SQL-запросов.
+ * <p>
+ * Источник соединений приложения (бин {@code dataSource}: пул Spring Boot или прокси чтения с реплик,
+ * см. {@link DataSourceConfig}) оборачивается прокси datasource-proxy, который передает каждое
+ * выполнение запроса и чтение результата в {@link StatementMetrics}. Время ожидания соединения
+ * из пула публикует Hikari метрикой {@code hikaricp.connections.acquire}.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "task.jdbc.metrics.enabled", havingValue = "true")
+public class StatementMetricsConfig {
+
+    /**
+     * Имя бина источника соединений, которым пользуются JPA и остальные компоненты приложения.
+     */
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Создает метрики SQL-запросов.
+     *
+     * @param meterRegistry     реестр метрик.
+     * @param slowThreshold     время выполнения, начиная с которого запрос считается медленным.
+     * @param nPlusOneThreshold количество выполнений одной формы SELECT за HTTP-запрос, считающееся признаком N+1.
+     * @param maxStatements     максимальное количество форм запросов с отдельными метриками.
+     * @return метрики SQL-запросов.
+     */
+    @Bean
+    public StatementMetrics statementMetrics(MeterRegistry meterRegistry,
+                                             @Value("${task.jdbc.metrics.slow-query-threshold}") Duration slowThreshold,
+                                             @Value("${task.jdbc.metrics.n-plus-one-threshold}") int nPlusOneThreshold,
+                                             @Value("${task.jdbc.metrics.max-statements}") int maxStatements) {
+        return new StatementMetrics(meterRegistry, slowThreshold, nPlusOneThreshold, maxStatements);
+    }
+
+    /**
+     * Оборачивает источник соединений приложения прокси, измеряющим запросы.
+     * <p>
+     * Метод статический, чтобы постпроцессор создавался раньше остальных бинов конфигурации;
+     * метрики запрашиваются только в момент создания источника соединений.
+     * </p>
+     *
+     * @param statementMetrics метрики SQL-запросов.
+     * @return постпроцессор бина {@code dataSource}.
+     */
+    @Bean
+    public static BeanPostProcessor statementMetricsDataSourceProxy(ObjectProvider<StatementMetrics> statementMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || !DATA_SOURCE_BEAN.equals(beanName)) {
+                    return bean;
+                }
+                StatementMetrics metrics = statementMetrics.getObject();
+                return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(metrics)
+                        .methodListener(metrics)
+                        .proxyResultSet()
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Регистрирует фильтр, считающий обращения к базе за HTTP-запрос.
+     *
+     * @param statementMetrics метрики SQL-запросов.
+     * @return регистрация фильтра.
+     */
+    @Bean
+    public FilterRegistrationBean<StatementStatisticsFilter> statementStatisticsFilter(StatementMetrics statementMetrics) {
+        return new FilterRegistrationBean<>(new StatementStatisticsFilter(statementMetrics));
+    }
+
+    /**
+     * Создает actuator-эндпоинт {@code sqlstats} со сводкой по формам запросов.
+     *
+     * @param statementMetrics метрики SQL-запросов.
+     * @return эндпоинт.
+     */
+    @Bean
+    public StatementStatisticsEndpoint statementStatisticsEndpoint(StatementMetrics statementMetrics) {
+        return new StatementStatisticsEndpoint(statementMetrics);
+    }
+}
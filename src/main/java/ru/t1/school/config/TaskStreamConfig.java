@@ -0,0 +1,50 @@
+package ru.t1.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Конфигурация потока событий об изменении статусов задач ({@code GET /tasks/stream}).
+ */
+@Configuration
+@Profile("!reactive")
+public class TaskStreamConfig {
+
+    @Value("${task.stream.sender-pool-size}")
+    private int senderPoolSize;
+
+    @Value("${task.stream.max-connections}")
+    private int maxConnections;
+
+    /**
+     * Создает пул потоков, записывающих события в открытые соединения.
+     * <p>
+     * Запись блокирует поток, пока клиент не примет данные, поэтому она выполняется не в потоке
+     * консьюмера Kafka. Одно соединение обслуживается не более чем одной задачей пула одновременно,
+     * так что очередь пула не длиннее количества соединений. При включенных виртуальных потоках
+     * ({@code spring.threads.virtual.enabled} на Java 21) каждая запись выполняется в своем виртуальном потоке.
+     * </p>
+     *
+     * @param environment окружение приложения.
+     * @return пул потоков для записи событий.
+     */
+    @Bean
+    public TaskExecutor taskStreamExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new VirtualThreadTaskExecutor("task-stream-");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(senderPoolSize);
+        executor.setMaxPoolSize(senderPoolSize);
+        executor.setQueueCapacity(maxConnections);
+        executor.setThreadNamePrefix("task-stream-");
+        return executor;
+    }
+}
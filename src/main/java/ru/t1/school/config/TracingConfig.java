@@ -0,0 +1,65 @@
+package ru.t1.school.config;
+
+import io.micrometer.tracing.exporter.SpanExportingPredicate;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.t1.school.datasource.ReplicaRoutingDataSource;
+import ru.t1.school.service.NotificationService;
+import ru.t1.school.service.OutboxRelay;
+import ru.t1.school.service.TaskStatusBroadcaster;
+
+import java.util.Set;
+
+/**
+ * Конфигурация экспорта трассировок.
+ * <p>
+ * Спаны отправляются в OTLP-коллектор, если задан адрес {@code management.otlp.tracing.endpoint}
+ * (экспортер создает Spring Boot). Без коллектора спаны можно писать в лог.
+ * </p>
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Задачи по расписанию, которые выполняются каждые несколько сотен миллисекунд или секунд.
+     */
+    private static final Set<String> POLLING_TASKS = Set.of(
+            OutboxRelay.class.getName() + ".relay",
+            NotificationService.class.getName() + ".flush",
+            ReplicaRoutingDataSource.class.getName() + ".probe",
+            TaskStatusBroadcaster.class.getName() + ".heartbeat");
+
+    /**
+     * Не экспортирует спаны опроса outbox, сброса очереди писем, проверки реплик базы данных и heartbeat потоков событий.
+     * <p>
+     * Spring Boot создает спан для каждого выполнения задачи по расписанию; для этих задач
+     * это несколько трасс в секунду без полезной информации. Публикация событий и отправка писем
+     * видны в трассах запросов, изменивших задачи (см. {@link ru.t1.school.service.TaskStatusTracing}).
+     * </p>
+     *
+     * @return условие экспорта спанов.
+     */
+    @Bean
+    public SpanExportingPredicate pollingTaskSpanFilter() {
+        return span -> !POLLING_TASKS.contains(span.getTags().get("code.namespace") + "." + span.getTags().get("code.function"));
+    }
+
+    /**
+     * Создает экспортер, который пишет спаны в лог в формате OTLP JSON, по строке на пачку спанов.
+     * <p>
+     * Строки пишутся логгером {@code io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter}
+     * и попадают в файл лога, если задан {@code logging.file.name}; их можно загрузить в коллектор
+     * позже. Работает вместе с экспортом в коллектор, если задан и он.
+     * </p>
+     *
+     * @return экспортер спанов в лог.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.export.log.enabled", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return OtlpJsonLoggingSpanExporter.create();
+    }
+}
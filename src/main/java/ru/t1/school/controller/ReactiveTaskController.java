@@ -0,0 +1,159 @@
+package ru.t1.school.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPageDTO;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.service.ReactiveTaskService;
+
+/**
+ * Реактивный REST-контроллер для управления задачами (профиль {@code reactive}).
+ * <p>
+ * Обслуживает те же запросы к отдельным задачам, постраничное чтение с фильтрами и выгрузку,
+ * что и {@link TaskController}, поэтому оба варианта можно нагружать одинаковыми запросами
+ * и сравнивать между собой. Массовые операции ({@code /tasks/bulk}) и поток изменений статусов
+ * ({@code GET /tasks/stream}) в этом профиле не поддерживаются.
+ * </p>
+ */
+@RestController
+@RequestMapping("/tasks")
+@Profile("reactive")
+public class ReactiveTaskController {
+
+    private final ReactiveTaskService taskService;
+
+    @Autowired
+    public ReactiveTaskController(ReactiveTaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    /**
+     * Создает новую задачу.
+     *
+     * @param taskDTO задача для создания
+     * @return созданная задача
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<TaskDTO> createTask(@Valid @RequestBody TaskDTO taskDTO) {
+        return taskService.createTask(taskDTO);
+    }
+
+    /**
+     * Получает задачу по ID с версией в заголовке {@code ETag}; при совпадении {@code If-None-Match}
+     * возвращает {@code 304 Not Modified} без загрузки задачи.
+     *
+     * @param id          ID задачи
+     * @param ifNoneMatch теги версий задачи, которые есть у клиента
+     * @return задача
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TaskDTO>> getTaskById(@PathVariable Long id,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return taskService.getTaskById(id).map(ReactiveTaskController::withETag);
+        }
+        return taskService.getTaskVersion(id)
+                .flatMap(version -> TaskETags.matches(ifNoneMatch, version)
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(TaskETags.of(version)).<TaskDTO>build())
+                        : taskService.getTaskById(id).map(ReactiveTaskController::withETag));
+    }
+
+    /**
+     * Обновляет задачу; при несовпадении версии из {@code If-Match} возвращает {@code 412 Precondition Failed}.
+     *
+     * @param id      ID задачи
+     * @param taskDTO новые данные задачи
+     * @param ifMatch тег версии задачи, которую видел клиент
+     * @return обновленная задача
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<TaskDTO>> updateTask(@PathVariable Long id, @Valid @RequestBody TaskDTO taskDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> taskService.updateTask(id, taskDTO, TaskETags.expectedVersion(ifMatch)))
+                .map(ReactiveTaskController::withETag);
+    }
+
+    /**
+     * Частично обновляет задачу в формате JSON Merge Patch, как {@link TaskController#patchTask}.
+     *
+     * @param id      ID задачи
+     * @param patch   изменяемые поля задачи
+     * @param ifMatch тег версии задачи, которую видел клиент
+     * @return задача после обновления
+     */
+    @PatchMapping(path = "/{id}", consumes = TaskController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public Mono<ResponseEntity<TaskDTO>> patchTask(@PathVariable Long id, @Valid @RequestBody TaskPatchDTO patch,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> taskService.patchTask(id, patch, TaskETags.expectedVersion(ifMatch)))
+                .map(ReactiveTaskController::withETag);
+    }
+
+    /**
+     * Удаляет задачу; заголовок {@code If-Match} проверяется так же, как при обновлении.
+     *
+     * @param id      ID задачи
+     * @param ifMatch тег версии задачи, которую видел клиент
+     * @return сигнал завершения
+     */
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteTask(@PathVariable Long id,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> taskService.deleteTask(id, TaskETags.expectedVersion(ifMatch)));
+    }
+
+    /**
+     * Получает страницу задач, отфильтрованных так же, как в {@link TaskController#getAllTasks}.
+     *
+     * @param userId ID пользователя
+     * @param status статус задачи
+     * @param q      слова для поиска в заголовке и описании задачи
+     * @param after  ID последней задачи предыдущей страницы (значение {@code next} из предыдущего ответа)
+     * @param limit  максимальное количество задач на странице
+     * @return страница задач
+     */
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<TaskPageDTO> getAllTasks(@RequestParam(required = false) Long userId,
+                                         @RequestParam(required = false) String status,
+                                         @RequestParam(required = false) String q,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit) {
+        return taskService.getTasks(userId, status, q, after, limit);
+    }
+
+    private static ResponseEntity<TaskDTO> withETag(TaskDTO task) {
+        return ResponseEntity.ok().eTag(TaskETags.of(task.getVersion())).body(task);
+    }
+
+    /**
+     * Выгружает все задачи в формате NDJSON с учетом скорости чтения клиентом.
+     *
+     * @return поток задач
+     */
+    @GetMapping(path = "/export", produces = TaskController.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<TaskDTO> exportTasks() {
+        return taskService.streamAllTasks();
+    }
+}
@@ -2,35 +2,87 @@ package ru.t1.school.controller;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPageDTO;
+import ru.t1.school.dto.TaskPatchDTO;
 import ru.t1.school.service.TaskService;
+import ru.t1.school.service.TaskStatusBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * REST-контроллер для управления задачами.
+ * <p>
+ * В профиле {@code reactive} вместо него работает {@link ReactiveTaskController}.
+ * </p>
  */
 @RestController
 @RequestMapping("/tasks")
 @Validated
+@Profile("!reactive")
 public class TaskController {
 
+    /**
+     * Тип содержимого для потоковой выгрузки: один JSON-объект на строку.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Тип содержимого частичного обновления в формате JSON Merge Patch (RFC 7396).
+     */
+    public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final TaskService taskService;
+    private final TaskStatusBroadcaster taskStatusBroadcaster;
+    private final Validator validator;
+    private final ObjectReader taskReader;
+    private final ObjectWriter taskWriter;
+    private final int bulkChunkSize;
 
     @Autowired
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, TaskStatusBroadcaster taskStatusBroadcaster, ObjectMapper objectMapper,
+                          Validator validator, @Value("${task.bulk.chunk-size}") int bulkChunkSize) {
         this.taskService = taskService;
+        this.taskStatusBroadcaster = taskStatusBroadcaster;
+        this.validator = validator;
+        this.taskReader = objectMapper.readerFor(TaskDTO.class);
+        this.taskWriter = objectMapper.writerFor(TaskDTO.class);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     /**
@@ -45,51 +97,220 @@ public class TaskController {
         return taskService.createTask(taskDTO);
     }
 
+    /**
+     * Создает несколько задач за один запрос.
+     *
+     * @param taskDTOs задачи для создания
+     * @return созданные задачи в том же порядке
+     */
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<TaskDTO> createTasks(@RequestBody List<@Valid TaskDTO> taskDTOs) {
+        return taskService.createTasks(taskDTOs);
+    }
+
+    /**
+     * Создает задачи из потока NDJSON (одна задача на строку).
+     * <p>
+     * Задачи читаются и записываются в базу порциями, каждая порция фиксируется в отдельной транзакции,
+     * а созданные задачи сразу выводятся в ответ в формате NDJSON. Если очередная строка некорректна,
+     * обработка прекращается; ранее записанные порции остаются в базе.
+     * </p>
+     *
+     * @param body     поток задач в формате NDJSON
+     * @param response ответ, в который выводятся созданные задачи
+     * @throws IOException если поток запроса или ответа недоступен
+     */
+    @PostMapping(path = "/bulk", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void importTasks(InputStream body, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.CREATED.value());
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        List<TaskDTO> chunk = new ArrayList<>(bulkChunkSize);
+        try (MappingIterator<TaskDTO> tasks = taskReader.readValues(body)) {
+            while (tasks.hasNextValue()) {
+                TaskDTO taskDTO = tasks.nextValue();
+                Set<ConstraintViolation<TaskDTO>> violations = validator.validate(taskDTO);
+                if (!violations.isEmpty()) {
+                    throw new ConstraintViolationException(violations);
+                }
+                chunk.add(taskDTO);
+                if (chunk.size() == bulkChunkSize) {
+                    writeLines(out, taskService.createTasks(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeLines(out, taskService.createTasks(chunk));
+        }
+    }
+
     /**
      * Получает задачу по ее ID.
+     * <p>
+     * Версия задачи возвращается в заголовке {@code ETag}. Если клиент передал ее в {@code If-None-Match}
+     * и задача не менялась, возвращается {@code 304 Not Modified} без тела; версия при этом
+     * проверяется по кэшу или запросом одной колонки.
+     * </p>
      *
-     * @param id ID задачи
+     * @param id          ID задачи
+     * @param ifNoneMatch теги версий задачи, которые есть у клиента
      * @return задача, если найдена
      */
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public TaskDTO getTaskById(@PathVariable Long id) {
-        return taskService.getTaskById(id);
+    public ResponseEntity<TaskDTO> getTaskById(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Long version = taskService.getTaskVersion(id);
+            if (TaskETags.matches(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(TaskETags.of(version)).build();
+            }
+        }
+        TaskDTO task = taskService.getTaskById(id);
+        return ResponseEntity.ok().eTag(TaskETags.of(task.getVersion())).body(task);
     }
 
     /**
-     * Обновляет существующую задачу.
+     * Обновляет существующую задачу: заменяет заголовок, описание и пользователя, статус не меняется.
+     * <p>
+     * Если передан заголовок {@code If-Match}, задача обновляется, только если ее версия не изменилась,
+     * иначе возвращается {@code 412 Precondition Failed}.
+     * </p>
      *
-     * @param id ID задачи для обновления
+     * @param id      ID задачи для обновления
      * @param taskDTO новые данные задачи
-     * @return обновленная задача
+     * @param ifMatch тег версии задачи, которую видел клиент
+     * @return обновленная задача с новой версией в заголовке {@code ETag}
      */
-    @ResponseStatus(HttpStatus.OK)
     @PutMapping("/{id}")
-    public TaskDTO updateTask(@PathVariable Long id, @Valid @RequestBody TaskDTO taskDTO) {
-        return taskService.updateTask(id, taskDTO);
+    public ResponseEntity<TaskDTO> updateTask(@PathVariable Long id, @Valid @RequestBody TaskDTO taskDTO,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        TaskDTO task = taskService.updateTask(id, taskDTO, TaskETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(TaskETags.of(task.getVersion())).body(task);
+    }
+
+    /**
+     * Частично обновляет задачу: изменяются только переданные поля, {@code null} очищает описание.
+     * <p>
+     * Статус меняется только по разрешенным переходам ({@code NEW -> IN_PROGRESS -> DONE}), иначе
+     * возвращается {@code 422 Unprocessable Entity}. Если значения совпадают с текущими, задача
+     * не сохраняется и версия в {@code ETag} не меняется. {@code If-Match} проверяется так же, как при PUT.
+     * </p>
+     *
+     * @param id      ID задачи
+     * @param patch   изменяемые поля задачи
+     * @param ifMatch тег версии задачи, которую видел клиент
+     * @return задача после обновления
+     */
+    @PatchMapping(path = "/{id}", consumes = APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public ResponseEntity<TaskDTO> patchTask(@PathVariable Long id, @Valid @RequestBody TaskPatchDTO patch,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        TaskDTO task = taskService.patchTask(id, patch, TaskETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(TaskETags.of(task.getVersion())).body(task);
+    }
+
+    /**
+     * Обновляет несколько задач за один запрос.
+     * <p>
+     * Версия, переданная в задаче, играет роль {@code If-Match}: если задача с тех пор изменилась,
+     * ни одна задача не обновляется и возвращается 412.
+     * </p>
+     *
+     * @param taskDTOs задачи с заполненным ID и новыми данными
+     * @return обновленные задачи в том же порядке
+     */
+    @PutMapping("/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public List<TaskDTO> updateTasks(@RequestBody List<@Valid TaskDTO> taskDTOs) {
+        return taskService.updateTasks(taskDTOs);
     }
 
     /**
      * Удаляет задачу по ее ID.
+     * <p>
+     * Заголовок {@code If-Match} проверяется так же, как при обновлении задачи.
+     * </p>
      *
-     * @param id ID задачи для удаления
+     * @param id      ID задачи для удаления
+     * @param ifMatch тег версии задачи, которую видел клиент
      */
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteTask(@PathVariable Long id) {
-        taskService.deleteTask(id);
+    public void deleteTask(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        taskService.deleteTask(id, TaskETags.expectedVersion(ifMatch));
     }
 
     /**
-     * Получает все задачи.
+     * Удаляет несколько задач за один запрос. Отсутствующие ID пропускаются.
      *
-     * @return список задач
+     * @param ids ID задач для удаления
+     */
+    @DeleteMapping("/bulk")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteTasks(@RequestBody List<Long> ids) {
+        taskService.deleteTasks(ids);
+    }
+
+    /**
+     * Получает страницу задач, при необходимости отфильтрованных по пользователю, статусу и тексту.
+     *
+     * @param userId ID пользователя
+     * @param status статус задачи
+     * @param q      слова для поиска в заголовке и описании задачи
+     * @param after  ID последней задачи предыдущей страницы (значение {@code next} из предыдущего ответа)
+     * @param limit  максимальное количество задач на странице
+     * @return страница задач
      */
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public List<TaskDTO> getAllTasks() {
-        return taskService.getAllTasks();
+    public TaskPageDTO getAllTasks(@RequestParam(required = false) Long userId,
+                                   @RequestParam(required = false) String status,
+                                   @RequestParam(required = false) String q,
+                                   @RequestParam(required = false) Long after,
+                                   @RequestParam(required = false) Integer limit) {
+        return taskService.getTasks(userId, status, q, after, limit);
+    }
+
+    /**
+     * Выгружает все задачи в формате NDJSON.
+     * <p>
+     * Задачи читаются из базы через курсор и записываются в ответ по мере получения,
+     * поэтому потребление памяти не зависит от размера таблицы.
+     * </p>
+     *
+     * @return тело ответа, записываемое построчно
+     */
+    @GetMapping(path = "/export", produces = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public StreamingResponseBody exportTasks() {
+        return out -> taskService.streamAllTasks(task -> {
+            try {
+                writeLine(out, task);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Открывает поток Server-Sent Events с изменениями статусов задач.
+     * <p>
+     * Каждое событие {@code status} содержит JSON {@link ru.t1.school.dto.TaskStatusDTO}, а его ID —
+     * идентификатор события, который браузер при переподключении передает в заголовке {@code Last-Event-ID}.
+     * Событие {@code reset} означает, что пропущенные события восстановить нельзя и задачи нужно перечитать.
+     * </p>
+     *
+     * @param userId      ID пользователя, события задач которого нужно получать; без него — события всех задач
+     * @param lastEventId ID последнего полученного события при переподключении
+     * @return поток событий
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskStatuses(@RequestParam(required = false) Long userId,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return taskStatusBroadcaster.subscribe(userId, lastEventId);
     }
 
     /**
@@ -100,4 +321,16 @@ public class TaskController {
     public void throwException() {
         throw new RuntimeException("This is a test exception");
     }
+
+    private void writeLines(OutputStream out, List<TaskDTO> tasks) throws IOException {
+        for (TaskDTO task : tasks) {
+            writeLine(out, task);
+        }
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, TaskDTO task) throws IOException {
+        out.write(taskWriter.writeValueAsBytes(task));
+        out.write('\n');
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package ru.t1.school.controller;
+
+import ru.t1.school.exception.TaskVersionMismatchException;
+
+/**
+ * Преобразование версии задачи в тег сущности ({@code ETag}) и разбор условных заголовков.
+ * <p>
+ * Тег сущности — версия задачи в кавычках, например {@code "3"}. Тег однозначно определяется
+ * версией, поэтому его можно сравнивать без загрузки и сериализации задачи.
+ * </p>
+ */
+final class TaskETags {
+
+    private static final String ANY = "*";
+
+    private TaskETags() {
+    }
+
+    /**
+     * Возвращает тег сущности для версии задачи.
+     *
+     * @param version версия задачи
+     * @return тег сущности в кавычках
+     */
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Проверяет, совпадает ли один из тегов заголовка {@code If-None-Match} с версией задачи.
+     * Теги сравниваются слабым сравнением, как требует RFC 9110 для {@code If-None-Match}.
+     *
+     * @param ifNoneMatch значение заголовка
+     * @param version     текущая версия задачи
+     * @return {@code true}, если у клиента актуальная версия задачи
+     */
+    static boolean matches(String ifNoneMatch, Long version) {
+        if (ifNoneMatch.trim().equals(ANY)) {
+            return true;
+        }
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            if (stripWeak(tag.trim()).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает версию, которую ожидает клиент, по заголовку {@code If-Match}.
+     * <p>
+     * Поддерживается один сильный тег или {@code *}. Слабый, составной или неразборчивый тег
+     * не может совпасть с текущей версией, поэтому приводит к {@link TaskVersionMismatchException}.
+     * </p>
+     *
+     * @param ifMatch значение заголовка или {@code null}
+     * @return ожидаемая версия или {@code null}, если версию проверять не нужно
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Ниже выбрасывается исключение о несовпадении версии
+            }
+        }
+        throw new TaskVersionMismatchException("If-Match does not match current task version: " + ifMatch);
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.t1.school.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Фильтр, направляющий чтения клиента на основную базу в течение короткого окна после его изменений.
+ * <p>
+ * Ответ на изменяющий запрос ({@code POST}, {@code PUT}, {@code PATCH}, {@code DELETE}) устанавливает
+ * cookie с моментом окончания окна. Пока окно не истекло, читающие транзакции запросов этого клиента
+ * выполняются на основной базе, поэтому он видит свои изменения, даже если реплики от нее отстают.
+ * Состояние хранится у клиента, так что окно действует на любом экземпляре приложения.
+ * В течение окна запросы клиента также не читают задачи из локального кэша, куда могла попасть строка
+ * с реплики. Потоковая выгрузка задач выполняется в другом потоке и всегда читает с реплики.
+ * </p>
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    /**
+     * Имя cookie с моментом окончания окна в миллисекундах от начала эпохи.
+     */
+    public static final String COOKIE_NAME = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    /**
+     * Создает фильтр.
+     *
+     * @param window время после изменения, в течение которого чтения клиента выполняются на основной базе.
+     */
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            // Cookie добавляется до обработки запроса: после записи тела заголовки изменить нельзя
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(System.currentTimeMillis() + window.toMillis()));
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!withinWindow(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.requirePrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryRequirement();
+        }
+    }
+
+    private boolean withinWindow(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    // Значение ограничено окном, чтобы подделанный cookie не направлял все чтения на основную базу
+                    return now < until && until <= now + window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
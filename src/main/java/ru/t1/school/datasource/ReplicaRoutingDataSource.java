@@ -0,0 +1,230 @@
+package ru.t1.school.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений для читающих транзакций: выбирает одну из реплик базы данных.
+ * <p>
+ * Используется как {@code readOnlyDataSource} прокси {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * поэтому получает только соединения транзакций с {@code readOnly = true}; остальные транзакции выполняются
+ * на основной базе. Реплика выбирается по очереди ({@link Strategy#ROUND_ROBIN}) или с наименьшей
+ * задержкой проверочного запроса ({@link Strategy#LEAST_LATENCY}). Проверка выполняется по расписанию
+ * через пул реплики, поэтому задержка включает и ожидание свободного соединения. Недоступные реплики
+ * пропускаются до следующей успешной проверки, а если доступных нет, чтение выполняется на основной базе.
+ * </p>
+ * <p>
+ * Запросы, для которых вызван {@link #requirePrimary()}, читают с основной базы, чтобы клиент видел
+ * собственные изменения, которые еще не дошли до реплик (см. {@link ReadYourWritesFilter}).
+ * Количество соединений по пулам и причинам выбора публикуется метрикой {@code datasource.read.connections},
+ * задержка реплик — метрикой {@code datasource.replica.latency}.
+ * </p>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * Ключ основной базы данных.
+     */
+    public static final String PRIMARY = "primary";
+
+    /**
+     * Вес последнего замера в сглаженной задержке реплики.
+     */
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    private static final int PROBE_TIMEOUT_SECONDS = 2;
+
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    /**
+     * Способ выбора реплики.
+     */
+    public enum Strategy {
+        /**
+         * Реплики выбираются по очереди.
+         */
+        ROUND_ROBIN,
+        /**
+         * Выбирается реплика с наименьшей сглаженной задержкой проверочного запроса.
+         */
+        LEAST_LATENCY
+    }
+
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter readYourWritesReads;
+    private final Counter noReplicaReads;
+
+    /**
+     * Создает источник соединений.
+     *
+     * @param primary       пул соединений основной базы.
+     * @param replicas      пулы соединений реплик.
+     * @param strategy      способ выбора реплики.
+     * @param meterRegistry реестр метрик.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Strategy strategy,
+                                    MeterRegistry meterRegistry) {
+        this.replicas = replicas.stream().map(dataSource -> new Replica(dataSource, meterRegistry)).toList();
+        this.strategy = strategy;
+        this.readYourWritesReads = readCounter(meterRegistry, PRIMARY, "read-your-writes");
+        this.noReplicaReads = readCounter(meterRegistry, PRIMARY, "no-replica");
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : this.replicas) {
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Направляет чтения текущего потока на основную базу до вызова {@link #clearPrimaryRequirement()}.
+     */
+    public static void requirePrimary() {
+        primaryRequired.set(Boolean.TRUE);
+    }
+
+    /**
+     * Отменяет действие {@link #requirePrimary()} для текущего потока.
+     */
+    public static void clearPrimaryRequirement() {
+        primaryRequired.remove();
+    }
+
+    /**
+     * Проверяет, должны ли чтения текущего потока выполняться на основной базе.
+     *
+     * @return {@code true}, если для текущего потока вызван {@link #requirePrimary()}
+     */
+    public static boolean isPrimaryRequired() {
+        return primaryRequired.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (isPrimaryRequired()) {
+            readYourWritesReads.increment();
+            return PRIMARY;
+        }
+        Replica replica = strategy == Strategy.LEAST_LATENCY ? leastLatency() : roundRobin();
+        if (replica == null) {
+            noReplicaReads.increment();
+            return PRIMARY;
+        }
+        replica.reads.increment();
+        return replica.name;
+    }
+
+    private Replica roundRobin() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Replica leastLatency() {
+        Replica best = null;
+        for (Replica replica : replicas) {
+            if (replica.available && (best == null || replica.latencyNanos < best.latencyNanos)) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Проверяет доступность реплик и обновляет их сглаженную задержку.
+     */
+    @Scheduled(fixedDelayString = "${task.datasource.replicas.probe-interval-ms}")
+    public void probe() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            boolean valid;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                valid = connection.isValid(PROBE_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                logger.debug("Replica {} probe failed", replica.name, e);
+                valid = false;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (valid) {
+                replica.latencyNanos = replica.latencyNanos == 0
+                        ? elapsed
+                        : (long) (LATENCY_SMOOTHING * elapsed + (1 - LATENCY_SMOOTHING) * replica.latencyNanos);
+            }
+            if (valid != replica.available) {
+                replica.available = valid;
+                if (valid) {
+                    logger.info("Replica {} is available again", replica.name);
+                } else {
+                    logger.warn("Replica {} is unavailable, reads are routed to other replicas or the primary", replica.name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Закрывает пулы соединений реплик. Пул основной базы закрывается отдельно.
+     */
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String pool, String reason) {
+        return Counter.builder("datasource.read.connections")
+                .description("Количество соединений читающих транзакций по пулам")
+                .tag("pool", pool)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пул соединений реплики и результаты ее последней проверки.
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final Counter reads;
+        private volatile boolean available = true;
+        private volatile long latencyNanos;
+
+        private Replica(HikariDataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = dataSource.getPoolName();
+            this.dataSource = dataSource;
+            this.reads = readCounter(meterRegistry, name, "replica");
+            Gauge.builder("datasource.replica.latency", this, replica -> replica.latencyNanos / 1e9)
+                    .description("Сглаженная задержка проверочного запроса к реплике")
+                    .baseUnit("seconds")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ru.t1.school.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Метрики SQL-запросов, выполняемых через JDBC.
+ * <p>
+ * Запросы группируются по форме: тексту, в котором литералы и списки параметров {@code IN (?, ?, ...)}
+ * заменены одним параметром. Для каждой формы публикуются время выполнения ({@code jdbc.statement.time}),
+ * количество прочитанных строк ({@code jdbc.statement.rows}) и количество медленных выполнений
+ * ({@code jdbc.statement.slow}); для пакетных запросов — размер пакета ({@code jdbc.batch.size}).
+ * Количество форм ограничено, остальные учитываются под формой {@code other}.
+ * </p>
+ * <p>
+ * Внутри HTTP-запроса (см. {@link StatementStatisticsFilter}) считается количество обращений к базе
+ * ({@code jdbc.statements.per.request}). Если одна и та же форма SELECT выполнена за запрос
+ * не меньше порогового числа раз, это признак N+1: в лог пишется предупреждение, а счетчик
+ * {@code jdbc.n.plus.one} увеличивается. Строки считаются при чтении {@link ResultSet} и относятся
+ * к последнему запросу потока, поэтому для вложенных курсоров значение приблизительное.
+ * </p>
+ */
+public class StatementMetrics implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetrics.class);
+
+    /**
+     * Форма, под которой учитываются запросы сверх ограничения на количество форм.
+     */
+    public static final String OTHER = "other";
+
+    private static final int MAX_STATEMENT_LENGTH = 500;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdMillis;
+    private final int nPlusOneThreshold;
+    private final int maxStatements;
+    private final Map<String, StatementMeters> statements = new ConcurrentHashMap<>();
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+    private final DistributionSummary batchSize;
+    private final ThreadLocal<RowCount> rowCount = new ThreadLocal<>();
+    private final ThreadLocal<RequestStatistics> requestStatistics = new ThreadLocal<>();
+
+    /**
+     * Создает метрики запросов.
+     *
+     * @param meterRegistry      реестр метрик.
+     * @param slowThreshold      время выполнения, начиная с которого запрос считается медленным.
+     * @param nPlusOneThreshold  количество выполнений одной формы SELECT за HTTP-запрос, начиная с которого
+     *                           выполнения считаются признаком N+1.
+     * @param maxStatements      максимальное количество форм запросов с отдельными метриками.
+     */
+    public StatementMetrics(MeterRegistry meterRegistry, Duration slowThreshold, int nPlusOneThreshold, int maxStatements) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdMillis = slowThreshold.toMillis();
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxStatements = maxStatements;
+        this.batchSize = DistributionSummary.builder("jdbc.batch.size")
+                .description("Количество наборов параметров в пакетном запросе")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // Время выполнения измеряется прокси и передается в afterQuery
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+        String query = queryInfoList.get(0).getQuery();
+        StatementMeters meters = meters(query);
+        long elapsed = execInfo.getElapsedTime();
+        meters.time.record(elapsed, TimeUnit.MILLISECONDS);
+        if (execInfo.isBatch()) {
+            batchSize.record(execInfo.getBatchSize());
+        }
+        if (elapsed >= slowThresholdMillis) {
+            meters.slow.increment();
+            logger.warn("Slow SQL statement ({} ms): {}", elapsed, meters.statement);
+        }
+        if (execInfo.getResult() instanceof ResultSet) {
+            flushRows();
+            rowCount.set(new RowCount(meters));
+        }
+        RequestStatistics request = requestStatistics.get();
+        if (request != null) {
+            request.statements++;
+            if (meters.select) {
+                request.selects.merge(meters.statement, 1, Integer::sum);
+            }
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        // Учитываются только результаты вызовов
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (!(executionContext.getTarget() instanceof ResultSet)) {
+            return;
+        }
+        String method = executionContext.getMethod().getName();
+        if ("next".equals(method)) {
+            RowCount current = rowCount.get();
+            if (current != null && Boolean.TRUE.equals(executionContext.getResult())) {
+                current.rows++;
+            }
+        } else if ("close".equals(method)) {
+            flushRows();
+        }
+    }
+
+    /**
+     * Начинает учет запросов к базе в рамках HTTP-запроса текущего потока.
+     */
+    public void beginRequest() {
+        requestStatistics.set(new RequestStatistics());
+    }
+
+    /**
+     * Завершает учет запросов к базе в рамках HTTP-запроса, публикует их количество и проверяет признаки N+1.
+     *
+     * @param method HTTP-метод.
+     * @param uri    шаблон пути запроса.
+     */
+    public void endRequest(String method, String uri) {
+        RequestStatistics request = requestStatistics.get();
+        requestStatistics.remove();
+        flushRows();
+        if (request == null) {
+            return;
+        }
+        DistributionSummary.builder("jdbc.statements.per.request")
+                .description("Количество обращений к базе данных за HTTP-запрос")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(request.statements);
+        boolean nPlusOne = false;
+        for (Map.Entry<String, Integer> select : request.selects.entrySet()) {
+            if (select.getValue() >= nPlusOneThreshold) {
+                nPlusOne = true;
+                logger.warn("Possible N+1: {} {} executed the same query {} times: {}",
+                        method, uri, select.getValue(), select.getKey());
+            }
+        }
+        if (nPlusOne) {
+            Counter.builder("jdbc.n.plus.one")
+                    .description("Количество HTTP-запросов, в которых одна форма SELECT выполнена не меньше порогового числа раз")
+                    .tag("method", method)
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Возвращает метрики всех учтенных форм запросов.
+     *
+     * @return метрики форм запросов.
+     */
+    public Collection<StatementMeters> statements() {
+        return statements.values();
+    }
+
+    private StatementMeters meters(String query) {
+        String shape = shapes.get(query);
+        if (shape == null) {
+            shape = shape(query);
+            if (shapes.size() < maxStatements * 10) {
+                shapes.put(query, shape);
+            }
+        }
+        StatementMeters meters = statements.get(shape);
+        if (meters != null) {
+            return meters;
+        }
+        if (statements.size() >= maxStatements) {
+            shape = OTHER;
+        }
+        return statements.computeIfAbsent(shape, StatementMeters::new);
+    }
+
+    private void flushRows() {
+        RowCount current = rowCount.get();
+        if (current != null) {
+            rowCount.remove();
+            current.meters.rows.record(current.rows);
+        }
+    }
+
+    /**
+     * Приводит текст запроса к форме, общей для запросов с разными литералами и длиной списков параметров.
+     *
+     * @param query текст запроса.
+     * @return форма запроса.
+     */
+    static String shape(String query) {
+        String shape = STRING_LITERAL.matcher(query).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return shape.length() > MAX_STATEMENT_LENGTH ? shape.substring(0, MAX_STATEMENT_LENGTH) : shape;
+    }
+
+    /**
+     * Метрики одной формы запроса.
+     */
+    public final class StatementMeters {
+
+        private final String statement;
+        private final boolean select;
+        private final Timer time;
+        private final DistributionSummary rows;
+        private final Counter slow;
+
+        private StatementMeters(String statement) {
+            this.statement = statement;
+            // Выборка значений последовательности (select nextval(?)) при пакетной вставке не является N+1
+            this.select = statement.regionMatches(true, 0, "select", 0, 6)
+                    && statement.toLowerCase(Locale.ROOT).contains(" from ");
+            String operation = statement.equals(OTHER) ? OTHER : statement.split(" ", 2)[0].toLowerCase(Locale.ROOT);
+            this.time = Timer.builder("jdbc.statement.time")
+                    .description("Время выполнения SQL-запроса")
+                    .tag("statement", statement)
+                    .tag("operation", operation)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.rows = DistributionSummary.builder("jdbc.statement.rows")
+                    .description("Количество строк, прочитанных из результата SQL-запроса")
+                    .tag("statement", statement)
+                    .register(meterRegistry);
+            this.slow = Counter.builder("jdbc.statement.slow")
+                    .description("Количество выполнений SQL-запроса дольше порогового времени")
+                    .tag("statement", statement)
+                    .register(meterRegistry);
+        }
+
+        public String getStatement() {
+            return statement;
+        }
+
+        public Timer getTime() {
+            return time;
+        }
+
+        public DistributionSummary getRows() {
+            return rows;
+        }
+
+        public Counter getSlow() {
+            return slow;
+        }
+    }
+
+    /**
+     * Количество строк, прочитанных из результата последнего запроса потока.
+     */
+    private static final class RowCount {
+
+        private final StatementMeters meters;
+        private long rows;
+
+        private RowCount(StatementMeters meters) {
+            this.meters = meters;
+        }
+    }
+
+    /**
+     * Обращения к базе в рамках одного HTTP-запроса.
+     */
+    private static final class RequestStatistics {
+
+        private int statements;
+        private final Map<String, Integer> selects = new HashMap<>();
+    }
+}
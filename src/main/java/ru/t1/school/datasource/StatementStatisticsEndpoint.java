@@ -0,0 +1,65 @@
+package ru.t1.school.datasource;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator-эндпоинт со сводкой по формам SQL-запросов, отсортированной по суммарному времени выполнения.
+ * <p>
+ * Те же значения доступны как метрики {@code jdbc.statement.*}, но в {@code /actuator/metrics}
+ * формы запросов видны только как значения тега. Пример: {@code GET /actuator/sqlstats?limit=10}.
+ * </p>
+ */
+@Endpoint(id = "sqlstats")
+public class StatementStatisticsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final StatementMetrics statementMetrics;
+
+    public StatementStatisticsEndpoint(StatementMetrics statementMetrics) {
+        this.statementMetrics = statementMetrics;
+    }
+
+    /**
+     * Возвращает формы запросов с наибольшим суммарным временем выполнения.
+     *
+     * @param limit максимальное количество форм в ответе.
+     * @return сводка по формам запросов.
+     */
+    @ReadOperation
+    public List<Map<String, Object>> statements(@Nullable Integer limit) {
+        return statementMetrics.statements().stream()
+                .sorted(Comparator.comparingDouble(
+                        (StatementMetrics.StatementMeters meters) -> meters.getTime().totalTime(TimeUnit.MILLISECONDS)).reversed())
+                .limit(limit == null ? DEFAULT_LIMIT : limit)
+                .map(StatementStatisticsEndpoint::summary)
+                .toList();
+    }
+
+    private static Map<String, Object> summary(StatementMetrics.StatementMeters meters) {
+        Timer time = meters.getTime();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("statement", meters.getStatement());
+        summary.put("count", time.count());
+        summary.put("totalMs", time.totalTime(TimeUnit.MILLISECONDS));
+        summary.put("meanMs", time.mean(TimeUnit.MILLISECONDS));
+        summary.put("maxMs", time.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : time.takeSnapshot().percentileValues()) {
+            summary.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        summary.put("meanRows", meters.getRows().mean());
+        summary.put("maxRows", meters.getRows().max());
+        summary.put("slow", (long) meters.getSlow().count());
+        return summary;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.t1.school.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Фильтр, ограничивающий учет обращений к базе данных одним HTTP-запросом.
+ * <p>
+ * Запросы группируются по шаблону пути обработчика ({@code /tasks/{id}}), а не по фактическому пути,
+ * чтобы количество метрик не зависело от ID задач. Обращения к базе из других потоков, например
+ * при потоковой выгрузке задач, в статистику запроса не попадают.
+ * </p>
+ */
+public class StatementStatisticsFilter extends OncePerRequestFilter {
+
+    private final StatementMetrics statementMetrics;
+
+    /**
+     * Создает фильтр.
+     *
+     * @param statementMetrics метрики SQL-запросов.
+     */
+    public StatementStatisticsFilter(StatementMetrics statementMetrics) {
+        this.statementMetrics = statementMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statementMetrics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statementMetrics.endRequest(request.getMethod(), pattern == null ? "UNKNOWN" : pattern.toString());
+        }
+    }
+}
@@ -16,6 +16,10 @@ import lombok.ToString;
  * Он включает в себя такую информацию о задаче, как идентификатор, заголовок, описание,
  * идентификатор пользователя и статус задачи.
  * </p>
+ * <p>
+ * Поле {@code version} заполняется сервером и передается клиенту также в заголовке {@code ETag};
+ * при создании и обновлении задачи значение из запроса игнорируется.
+ * </p>
  */
 
 @Getter
@@ -36,4 +40,6 @@ public class TaskDTO {
     private Long userId;
 
     private String status = "NEW"; // Значение по умолчанию
+
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package ru.t1.school.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) для представления страницы задач.
+ * <p>
+ * Страница содержит задачи, упорядоченные по идентификатору, и курсор {@code next},
+ * который передается в параметре {@code after} для получения следующей страницы.
+ * Если следующей страницы нет, курсор равен {@code null}.
+ * </p>
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class TaskPageDTO {
+    private List<TaskDTO> items;
+    private Long next;
+}
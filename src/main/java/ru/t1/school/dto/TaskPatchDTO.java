@@ -0,0 +1,38 @@
+package ru.t1.school.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Optional;
+
+/**
+ * Data Transfer Object (DTO) для частичного обновления задачи в формате JSON Merge Patch (RFC 7396).
+ * <p>
+ * Каждое поле может находиться в трех состояниях: отсутствует в запросе ({@code null}) — поле задачи
+ * не меняется; передано как {@code null} ({@link Optional#empty()}) — поле очищается; передано
+ * значение — поле получает это значение. Заголовок, пользователя и статус очистить нельзя.
+ * ID и версия задачи через этот объект не изменяются.
+ * </p>
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class TaskPatchDTO {
+    private Optional<@NotBlank(message = "Title is mandatory") String> title;
+
+    private Optional<String> description;
+
+    private Optional<@NotNull(message = "User ID is mandatory") Long> userId;
+
+    private Optional<@NotNull(message = "Status is mandatory") String> status;
+}
@@ -12,6 +12,12 @@ import lombok.ToString;
  * <p>
  * Этот класс используется для передачи данных о статусе задачи между клиентом и сервером.
  * Он включает в себя такую информацию о задаче, как идентификатор задачи, статус и описание статуса.
+ * Идентификатор события {@code eventId} уникален для каждого события и используется консьюмерами
+ * для отбрасывания повторно доставленных сообщений. Поле {@code previousStatus} содержит статус
+ * задачи до изменения: если он совпадает с {@code status}, статус не менялся и уведомление не отправляется.
+ * Поле {@code occurredAt} — время изменения задачи в миллисекундах от начала эпохи (для объединенных
+ * событий — время первого изменения), от которого консьюмер отсчитывает полную задержку уведомления.
+ * Поле {@code userId} — владелец задачи; может отсутствовать в событиях, записанных до его появления.
  * </p>
  */
 
@@ -22,7 +28,11 @@ import lombok.ToString;
 @ToString
 @EqualsAndHashCode
 public class TaskStatusDTO {
+    private Long eventId;
     private Long taskId;
     private String status;
+    private String previousStatus;
     private String description;
+    private Long occurredAt;
+    private Long userId;
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package ru.t1.school.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Entity-класс для представления события об изменении статуса задачи в таблице outbox.
+ * <p>
+ * Событие записывается в той же транзакции, что и изменение задачи, и позже публикуется
+ * в Kafka фоновым процессом {@link ru.t1.school.service.OutboxRelay}. Это гарантирует,
+ * что событие не будет потеряно и что HTTP-запрос не ожидает ответа брокера.
+ * </p>
+ */
+@Entity
+@Table(name = "task_status_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_status_outbox_id_seq")
+    @SequenceGenerator(name = "task_status_outbox_id_seq", sequenceName = "task_status_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    /**
+     * Статус задачи до изменения; {@code null} для событий, не связанных с изменением задачи (удаление).
+     */
+    @Column(name = "previous_status")
+    private String previousStatus;
+
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Контекст трассировки запроса, изменившего задачу, в формате W3C {@code traceparent};
+     * {@code null}, если событие записано вне трассы.
+     */
+    @Column(name = "traceparent", length = 55)
+    private String traceparent;
+
+    /**
+     * ID пользователя, которому принадлежит задача; по нему события направляются в потоки {@code GET /tasks/stream}.
+     */
+    @Column(name = "user_id")
+    private Long userId;
+}
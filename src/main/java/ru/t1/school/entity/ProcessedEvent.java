@@ -0,0 +1,36 @@
+package ru.t1.school.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Entity-класс для представления события о смене статуса, уведомление о котором уже отправлено.
+ * <p>
+ * Таблица используется {@link ru.t1.school.service.ProcessedEventStore} для отбрасывания
+ * повторно доставленных сообщений и очищается от записей старше срока хранения.
+ * </p>
+ */
+@Entity
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class ProcessedEvent {
+
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+}
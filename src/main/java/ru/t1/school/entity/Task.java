@@ -15,9 +15,17 @@ import lombok.ToString;
  * Он включает в себя такую информацию о задаче, как идентификатор, заголовок, описание,
  * идентификатор пользователя и статус задачи.
  * </p>
+ * <p>
+ * Поле {@code version} используется для оптимистической блокировки: Hibernate увеличивает его
+ * при каждом изменении и отклоняет запись, если строку уже изменила другая транзакция.
+ * </p>
  */
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_tasks_user_status_id", columnList = "user_id, status, id"),
+        @Index(name = "idx_tasks_status_id", columnList = "status, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,7 +35,8 @@ import lombok.ToString;
 public class Task {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_id_seq")
+    @SequenceGenerator(name = "tasks_id_seq", sequenceName = "tasks_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "title", nullable = false)
@@ -41,4 +50,8 @@ public class Task {
 
     @Column(name = "status", nullable = false)
     private String status = "NEW"; // Значение по умолчанию
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package ru.t1.school.entity;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Статус задачи и допустимые переходы между статусами.
+ * <p>
+ * Задача создается в статусе {@link #NEW}, берется в работу ({@link #IN_PROGRESS}) и завершается
+ * ({@link #DONE}). Задачу в работе можно вернуть в {@link #NEW}, а завершенную — снова взять в работу.
+ * В таблице статус хранится строкой, поэтому у задач, созданных до появления переходов, может
+ * встретиться другое значение (например, {@code UPDATE}); из такого статуса разрешен переход в любой.
+ * </p>
+ */
+public enum TaskStatus {
+    NEW,
+    IN_PROGRESS,
+    DONE;
+
+    private static final Map<TaskStatus, Set<TaskStatus>> TRANSITIONS = new EnumMap<>(Map.of(
+            NEW, EnumSet.of(IN_PROGRESS),
+            IN_PROGRESS, EnumSet.of(NEW, DONE),
+            DONE, EnumSet.of(IN_PROGRESS)));
+
+    /**
+     * Проверяет, разрешен ли переход из текущего статуса задачи в указанный.
+     *
+     * @param current текущий статус задачи, как он хранится в таблице
+     * @param target  новый статус
+     * @return {@code true}, если переход разрешен
+     */
+    public static boolean canChange(String current, TaskStatus target) {
+        return parse(current)
+                .map(status -> TRANSITIONS.get(status).contains(target))
+                .orElse(true);
+    }
+
+    /**
+     * Возвращает статус по его названию.
+     *
+     * @param value название статуса
+     * @return статус или пустой результат, если такого статуса нет
+     */
+    public static Optional<TaskStatus> parse(String value) {
+        for (TaskStatus status : values()) {
+            if (status.name().equals(value)) {
+                return Optional.of(status);
+            }
+        }
+        return Optional.empty();
+    }
+}
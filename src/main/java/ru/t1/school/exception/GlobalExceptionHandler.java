@@ -1,6 +1,9 @@
 package ru.t1.school.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -23,6 +26,68 @@ public class GlobalExceptionHandler {
         return ex.getMessage();
     }
 
+    /**
+     * Обрабатывает исключения InvalidTaskRequestException: в запросе не хватает данных.
+     *
+     * @param ex исключение InvalidTaskRequestException
+     * @return сообщение об ошибке
+     */
+    @ExceptionHandler(InvalidTaskRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidTaskRequestException(InvalidTaskRequestException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Обрабатывает исключения TaskVersionMismatchException: версия из {@code If-Match} устарела.
+     *
+     * @param ex исключение TaskVersionMismatchException
+     * @return сообщение об ошибке
+     */
+    @ExceptionHandler(TaskVersionMismatchException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public String handleTaskVersionMismatchException(TaskVersionMismatchException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Обрабатывает исключения TaskStatusTransitionException: недопустимый переход статуса задачи.
+     *
+     * @param ex исключение TaskStatusTransitionException
+     * @return сообщение об ошибке
+     */
+    @ExceptionHandler(TaskStatusTransitionException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public String handleTaskStatusTransitionException(TaskStatusTransitionException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Обрабатывает конфликт параллельных изменений одной задачи, обнаруженный при записи в базу,
+     * если клиент не передал {@code If-Match}; с ним конфликт приводит к TaskVersionMismatchException.
+     *
+     * @param ex исключение OptimisticLockingFailureException
+     * @return сообщение об ошибке
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * Обрабатывает исключения TaskStreamLimitException: открыто максимальное количество потоков событий.
+     *
+     * @param ex исключение TaskStreamLimitException
+     * @return ответ 503 с заголовком {@code Retry-After}
+     */
+    @ExceptionHandler(TaskStreamLimitException.class)
+    public ResponseEntity<String> handleTaskStreamLimitException(TaskStreamLimitException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ex.getMessage());
+    }
+
     /**
      * Обрабатывает исключения TaskServiceException.
      *
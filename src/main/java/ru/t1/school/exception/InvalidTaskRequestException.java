@@ -0,0 +1,16 @@
+package ru.t1.school.exception;
+
+/**
+ * Исключение, выбрасываемое, когда запрос не содержит данных, необходимых для операции над задачами,
+ * например, ID задачи при пакетном обновлении.
+ */
+public class InvalidTaskRequestException extends RuntimeException {
+    /**
+     * Создает новое исключение InvalidTaskRequestException с указанным сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+    public InvalidTaskRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.t1.school.exception;
+
+/**
+ * Исключение, выбрасываемое при попытке перевести задачу в неизвестный статус
+ * или в статус, переход в который из текущего не разрешен.
+ */
+public class TaskStatusTransitionException extends RuntimeException {
+    /**
+     * Создает новое исключение TaskStatusTransitionException с указанным сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+    public TaskStatusTransitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.t1.school.exception;
+
+import java.time.Duration;
+
+/**
+ * Исключение, выбрасываемое при попытке открыть поток событий {@code GET /tasks/stream},
+ * когда на экземпляре приложения уже открыто максимальное количество потоков.
+ */
+public class TaskStreamLimitException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * Создает новое исключение TaskStreamLimitException с указанным сообщением.
+     *
+     * @param message    сообщение об ошибке
+     * @param retryAfter время, через которое клиенту стоит повторить подключение
+     */
+    public TaskStreamLimitException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
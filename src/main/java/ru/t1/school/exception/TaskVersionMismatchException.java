@@ -0,0 +1,26 @@
+package ru.t1.school.exception;
+
+/**
+ * Исключение, выбрасываемое, когда версия задачи не совпадает с ожидаемой клиентом
+ * (заголовок {@code If-Match}).
+ */
+public class TaskVersionMismatchException extends RuntimeException {
+    /**
+     * Создает новое исключение TaskVersionMismatchException с указанным сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+    public TaskVersionMismatchException(String message) {
+        super(message);
+    }
+
+    /**
+     * Создает новое исключение TaskVersionMismatchException с указанным сообщением и причиной.
+     *
+     * @param message сообщение об ошибке
+     * @param cause причина исключения
+     */
+    public TaskVersionMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
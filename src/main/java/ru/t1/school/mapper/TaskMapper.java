@@ -1,6 +1,7 @@
 package ru.t1.school.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 import ru.t1.school.dto.TaskDTO;
 import ru.t1.school.entity.Task;
@@ -11,5 +12,6 @@ public interface TaskMapper {
 
     TaskDTO toDTO(Task task);
 
+    @Mapping(target = "version", ignore = true)
     Task toEntity(TaskDTO taskDTO);
 }
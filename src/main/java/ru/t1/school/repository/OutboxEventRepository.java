@@ -0,0 +1,57 @@
+package ru.t1.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.t1.school.entity.OutboxEvent;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Захватывает очередную пачку задач с неопубликованными событиями.
+     * <p>
+     * В пачку попадают задачи, самое старое событие которых записано не позже {@code cutoff}, в порядке
+     * записи этих событий. Каждая задача захватывается транзакционной advisory-блокировкой с ключом,
+     * равным ее ID, до конца транзакции; задачи, уже захваченные другим экземпляром приложения,
+     * пропускаются. Поэтому все события одной задачи публикует один экземпляр, а несколько экземпляров
+     * могут разбирать outbox параллельно.
+     * </p>
+     *
+     * @param cutoff момент, до которого должно быть записано самое старое событие задачи
+     * @param limit  максимальное количество задач в пачке
+     * @return ID захваченных задач
+     */
+    @Query(value = "SELECT task_id FROM (SELECT task_id, min(created_at) AS first_created_at, min(id) AS first_id"
+            + " FROM task_status_outbox GROUP BY task_id HAVING min(created_at) <= :cutoff"
+            + " ORDER BY first_created_at, first_id LIMIT :limit) candidates"
+            + " WHERE pg_try_advisory_xact_lock(task_id)"
+            + " ORDER BY first_created_at, first_id", nativeQuery = true)
+    List<Long> lockNextTasks(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /**
+     * Возвращает все события задач, захваченных {@link #lockNextTasks(Instant, int)}.
+     * <p>
+     * Запрос должен выполняться после захвата задач: он видит события, удаленные экземпляром,
+     * который владел задачей раньше, и не публикует их повторно. События упорядочены по времени
+     * записи, а не по ID, потому что экземпляры получают ID из последовательности блоками.
+     * </p>
+     *
+     * @param taskIds ID захваченных задач
+     * @return события в порядке их записи
+     */
+    List<OutboxEvent> findByTaskIdInOrderByCreatedAtAscIdAsc(Collection<Long> taskIds);
+
+    /**
+     * Возвращает самое старое неопубликованное событие.
+     *
+     * @return самое старое событие, если outbox не пуст
+     */
+    Optional<OutboxEvent> findFirstByOrderByCreatedAtAscIdAsc();
+}
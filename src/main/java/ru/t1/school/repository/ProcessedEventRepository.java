@@ -0,0 +1,49 @@
+package ru.t1.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.t1.school.entity.ProcessedEvent;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, Long> {
+
+    /**
+     * Возвращает идентификаторы из переданного набора, уже записанные как обработанные.
+     *
+     * @param eventIds проверяемые идентификаторы событий
+     * @return обработанные идентификаторы
+     */
+    @Query("SELECT e.eventId FROM ProcessedEvent e WHERE e.eventId IN :eventIds")
+    List<Long> findExistingIds(@Param("eventIds") Collection<Long> eventIds);
+
+    /**
+     * Записывает события как обработанные одним запросом; уже записанные события пропускаются.
+     *
+     * @param eventIds    идентификаторы событий
+     * @param processedAt время обработки
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO processed_events (event_id, processed_at)"
+            + " SELECT id, :processedAt FROM unnest(ARRAY[:eventIds]) AS id ON CONFLICT DO NOTHING", nativeQuery = true)
+    void insertIgnoringDuplicates(@Param("eventIds") Collection<Long> eventIds, @Param("processedAt") Instant processedAt);
+
+    /**
+     * Удаляет записи об обработанных событиях старше указанного момента.
+     *
+     * @param before момент, до которого события считаются устаревшими
+     * @return количество удаленных записей
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProcessedEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Instant before);
+}
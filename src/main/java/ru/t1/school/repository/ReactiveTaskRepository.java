@@ -0,0 +1,207 @@
+package ru.t1.school.repository;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.t1.school.entity.OutboxEvent;
+import ru.t1.school.entity.Task;
+
+/**
+ * Реактивный репозиторий задач на основе R2DBC.
+ * <p>
+ * Работает с теми же таблицами, что и JPA-репозитории, и возвращает те же сущности, поэтому
+ * для преобразования в DTO используется общий {@code TaskMapper}. ID берутся из тех же
+ * последовательностей: каждое значение последовательности резервирует блок из 50 ID (по размеру
+ * {@code allocationSize} в Hibernate), реактивный репозиторий использует верхнюю границу блока,
+ * так что ID не пересекаются с выданными Hibernate.
+ * </p>
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveTaskRepository {
+
+    private static final String COLUMNS = "id, title, description, user_id, status, version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveTaskRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Возвращает задачу по ID.
+     *
+     * @param id ID задачи
+     * @return задача или пустой результат, если задачи нет
+     */
+    public Mono<Task> findById(Long id) {
+        return databaseClient.sql("select " + COLUMNS + " from tasks where id = :id")
+                .bind("id", id)
+                .map(ReactiveTaskRepository::toTask)
+                .one();
+    }
+
+    /**
+     * Возвращает версию задачи, не загружая остальные поля.
+     *
+     * @param id ID задачи
+     * @return версия задачи или пустой результат, если задачи нет
+     */
+    public Mono<Long> findVersionById(Long id) {
+        return databaseClient.sql("select version from tasks where id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    /**
+     * Возвращает страницу задач, следующих за указанным ID (keyset-пагинация по первичному ключу),
+     * с теми же фильтрами, что и {@link TaskRepository}: по пользователю и статусу — диапазонным
+     * сканированием индексов, заканчивающихся на {@code id}, по словам — полнотекстовым индексом
+     * {@code idx_tasks_text}.
+     *
+     * @param userId ID пользователя или {@code null}, чтобы не фильтровать по пользователю
+     * @param status статус задачи или {@code null}, чтобы не фильтровать по статусу
+     * @param text   слова, которые должны встречаться в заголовке или описании, или {@code null}
+     * @param after  ID последней задачи предыдущей страницы
+     * @param limit  максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    public Flux<Task> findPage(Long userId, String status, String text, long after, int limit) {
+        StringBuilder sql = new StringBuilder("select " + COLUMNS + " from tasks where id > :after");
+        if (text != null) {
+            // Выражение должно совпадать с выражением индекса idx_tasks_text в schema.sql
+            sql.append(" and to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(description, ''))"
+                    + " @@ plainto_tsquery('simple', :text)");
+        }
+        if (userId != null) {
+            sql.append(" and user_id = :userId");
+        }
+        if (status != null) {
+            sql.append(" and status = :status");
+        }
+        sql.append(" order by id limit :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("after", after)
+                .bind("limit", limit);
+        if (text != null) {
+            spec = spec.bind("text", text);
+        }
+        if (userId != null) {
+            spec = spec.bind("userId", userId);
+        }
+        if (status != null) {
+            spec = spec.bind("status", status);
+        }
+        return spec.map(ReactiveTaskRepository::toTask).all();
+    }
+
+    /**
+     * Читает все задачи через курсор: следующая порция строк запрашивается у базы только
+     * по мере того, как подписчик запрашивает новые элементы.
+     *
+     * @param fetchSize количество строк, получаемых драйвером за одно обращение к базе
+     * @return задачи, упорядоченные по ID
+     */
+    public Flux<Task> streamAll(int fetchSize) {
+        return databaseClient.sql("select " + COLUMNS + " from tasks order by id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveTaskRepository::toTask)
+                .all();
+    }
+
+    /**
+     * Сохраняет новую задачу с версией {@code 0}.
+     *
+     * @param task задача без ID
+     * @return ID созданной задачи
+     */
+    public Mono<Long> insert(Task task) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into tasks (id, title, description, user_id, status, version)"
+                        + " values (nextval('tasks_id_seq'), :title, :description, :userId, :status, 0) returning id")
+                .bind("title", task.getTitle())
+                .bind("userId", task.getUserId())
+                .bind("status", task.getStatus());
+        return bindNullable(spec, "description", task.getDescription())
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Обновляет заголовок, описание, пользователя и статус задачи и увеличивает ее версию.
+     * <p>
+     * Строка обновляется, только если ее версия совпадает с версией переданной задачи;
+     * ноль обновленных строк означает, что задачу параллельно изменили или удалили.
+     * </p>
+     *
+     * @param task задача с ID и версией, с которой она была прочитана
+     * @return количество обновленных строк
+     */
+    public Mono<Long> update(Task task) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("update tasks set title = :title, description = :description,"
+                        + " user_id = :userId, status = :status, version = version + 1 where id = :id and version = :version")
+                .bind("id", task.getId())
+                .bind("version", task.getVersion())
+                .bind("title", task.getTitle())
+                .bind("userId", task.getUserId())
+                .bind("status", task.getStatus());
+        return bindNullable(spec, "description", task.getDescription())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Удаляет задачу по ID, если ее версия не изменилась.
+     *
+     * @param id      ID задачи
+     * @param version версия, с которой задача была прочитана
+     * @return количество удаленных строк
+     */
+    public Mono<Long> deleteByIdAndVersion(Long id, Long version) {
+        return databaseClient.sql("delete from tasks where id = :id and version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Записывает событие в outbox для последующей публикации в Kafka.
+     *
+     * @param event событие без ID
+     * @return сигнал завершения
+     */
+    public Mono<Void> insertOutboxEvent(OutboxEvent event) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into task_status_outbox"
+                        + " (id, task_id, status, previous_status, description, created_at, traceparent, user_id)"
+                        + " values (nextval('task_status_outbox_id_seq'), :taskId, :status, :previousStatus, :description, :createdAt,"
+                        + " :traceparent, :userId)")
+                .bind("taskId", event.getTaskId())
+                .bind("status", event.getStatus())
+                .bind("createdAt", event.getCreatedAt());
+        spec = bindNullable(spec, "previousStatus", event.getPreviousStatus());
+        spec = bindNullable(spec, "traceparent", event.getTraceparent());
+        spec = event.getUserId() == null ? spec.bindNull("userId", Long.class) : spec.bind("userId", event.getUserId());
+        return bindNullable(spec, "description", event.getDescription())
+                .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static Task toTask(Readable row) {
+        Task task = new Task();
+        task.setId(row.get("id", Long.class));
+        task.setTitle(row.get("title", String.class));
+        task.setDescription(row.get("description", String.class));
+        task.setUserId(row.get("user_id", Long.class));
+        task.setStatus(row.get("status", String.class));
+        task.setVersion(row.get("version", Long.class));
+        return task;
+    }
+}
@@ -1,9 +1,99 @@
 package ru.t1.school.repository;
 
 import ru.t1.school.entity.Task;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Long> {
-}
\ No newline at end of file
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskRepositoryCustom {
+
+    /**
+     * Возвращает страницу задач, следующих за указанным ID (keyset-пагинация по первичному ключу).
+     *
+     * @param id    ID последней задачи предыдущей страницы
+     * @param limit максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    List<Task> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Возвращает страницу задач пользователя, следующих за указанным ID.
+     * <p>
+     * Выполняется диапазонным сканированием индекса {@code (user_id, id)}: в индексе
+     * {@code (user_id, status, id)} задачи пользователя упорядочены сначала по статусу,
+     * и их пришлось бы сортировать по ID на каждой странице.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param id     ID последней задачи предыдущей страницы
+     * @param limit  максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    List<Task> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Limit limit);
+
+    /**
+     * Возвращает страницу задач пользователя с указанным статусом, следующих за указанным ID.
+     * <p>
+     * Выполняется диапазонным сканированием индекса {@code (user_id, status, id)}.
+     * </p>
+     *
+     * @param userId ID пользователя
+     * @param status статус задачи
+     * @param id     ID последней задачи предыдущей страницы
+     * @param limit  максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    List<Task> findByUserIdAndStatusAndIdGreaterThanOrderByIdAsc(Long userId, String status, Long id, Limit limit);
+
+    /**
+     * Возвращает страницу задач с указанным статусом, следующих за указанным ID.
+     * <p>
+     * Выполняется диапазонным сканированием индекса {@code (status, id)}.
+     * </p>
+     *
+     * @param status статус задачи
+     * @param id     ID последней задачи предыдущей страницы
+     * @param limit  максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    List<Task> findByStatusAndIdGreaterThanOrderByIdAsc(String status, Long id, Limit limit);
+
+    /**
+     * Возвращает ID и владельцев существующих задач из переданного набора, не загружая остальные поля.
+     *
+     * @param ids проверяемые ID
+     * @return задачи, которые есть в базе
+     */
+    @Query("select t.id as id, t.userId as userId from Task t where t.id in :ids")
+    List<TaskOwner> findOwners(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Возвращает версию задачи, не загружая остальные поля.
+     * <p>
+     * Используется для проверки условных запросов: если версия у клиента актуальна,
+     * задачу не нужно ни загружать, ни сериализовать.
+     * </p>
+     *
+     * @param id ID задачи
+     * @return версия задачи или пустой результат, если задачи нет
+     */
+    @Query("select t.version from Task t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * ID задачи и ее владелец.
+     */
+    interface TaskOwner {
+
+        Long getId();
+
+        Long getUserId();
+    }
+}
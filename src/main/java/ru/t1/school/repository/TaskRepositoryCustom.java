@@ -0,0 +1,39 @@
+package ru.t1.school.repository;
+
+import ru.t1.school.entity.Task;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Дополнительные методы репозитория задач, которые нельзя выразить производными запросами.
+ */
+public interface TaskRepositoryCustom {
+
+    /**
+     * Построчно читает все задачи через серверный курсор JDBC.
+     * <p>
+     * Поток должен потребляться внутри транзакции и закрываться после использования.
+     * </p>
+     *
+     * @param fetchSize количество строк, получаемых драйвером за одно обращение к базе
+     * @return поток задач, упорядоченных по ID
+     */
+    Stream<Task> streamAll(int fetchSize);
+
+    /**
+     * Возвращает страницу задач, в заголовке или описании которых встречаются все слова запроса.
+     * <p>
+     * Поиск выполняется по полнотекстовому GIN-индексу {@code idx_tasks_text}; фильтры по пользователю
+     * и статусу применяются, только если заданы.
+     * </p>
+     *
+     * @param text   текст запроса
+     * @param userId ID пользователя или {@code null}
+     * @param status статус задачи или {@code null}
+     * @param after  ID последней задачи предыдущей страницы
+     * @param limit  максимальное количество задач
+     * @return задачи, упорядоченные по ID
+     */
+    List<Task> searchByText(String text, Long userId, String status, long after, int limit);
+}
@@ -0,0 +1,56 @@
+package ru.t1.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import ru.t1.school.entity.Task;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Реализация {@link TaskRepositoryCustom} на основе {@link EntityManager}.
+ */
+public class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Task> streamAll(int fetchSize) {
+        return entityManager.createQuery("select t from Task t order by t.id", Task.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Task> searchByText(String text, Long userId, String status, long after, int limit) {
+        // Выражение должно совпадать с выражением индекса idx_tasks_text в schema.sql
+        StringBuilder sql = new StringBuilder("select * from tasks"
+                + " where to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(description, ''))"
+                + " @@ plainto_tsquery('simple', :text) and id > :after");
+        if (userId != null) {
+            sql.append(" and user_id = :userId");
+        }
+        if (status != null) {
+            sql.append(" and status = :status");
+        }
+        sql.append(" order by id limit :limit");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Task.class)
+                .setParameter("text", text)
+                .setParameter("after", after)
+                .setParameter("limit", limit);
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        @SuppressWarnings("unchecked")
+        List<Task> tasks = query.getResultList();
+        return tasks;
+    }
+}
@@ -0,0 +1,203 @@
+package ru.t1.school.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Компактный двоичный формат события {@link TaskStatusDTO}.
+ * <p>
+ * Сообщение начинается с байта версии формата {@link #VERSION}, за которым следуют поля в виде
+ * {@code тег (1 байт) | длина (varint) | значение}. Поля со значением {@code null} не записываются,
+ * числа кодируются как zigzag varint, строки — в UTF-8. Неизвестные теги пропускаются при чтении,
+ * поэтому новые поля можно добавлять без смены версии: старые консьюмеры их просто проигнорируют.
+ * Первый байт JSON-сообщения всегда {@code '{'}, что позволяет отличить форматы при миграции.
+ * </p>
+ */
+public final class TaskStatusBinaryCodec {
+
+    /**
+     * Версия двоичного формата, записываемая первым байтом сообщения.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int TAG_TASK_ID = 1;
+    private static final int TAG_STATUS = 2;
+    private static final int TAG_DESCRIPTION = 3;
+    private static final int TAG_EVENT_ID = 4;
+    private static final int TAG_PREVIOUS_STATUS = 5;
+    private static final int TAG_OCCURRED_AT = 6;
+    private static final int TAG_USER_ID = 7;
+
+    private TaskStatusBinaryCodec() {
+    }
+
+    /**
+     * Кодирует событие в двоичный формат.
+     *
+     * @param taskStatusDTO событие изменения статуса задачи.
+     * @return закодированное событие.
+     */
+    public static byte[] encode(TaskStatusDTO taskStatusDTO) {
+        byte[] status = utf8(taskStatusDTO.getStatus());
+        byte[] description = utf8(taskStatusDTO.getDescription());
+        byte[] previousStatus = utf8(taskStatusDTO.getPreviousStatus());
+
+        int size = 1 + longFieldSize(taskStatusDTO.getTaskId()) + bytesFieldSize(status) + bytesFieldSize(description)
+                + longFieldSize(taskStatusDTO.getEventId()) + bytesFieldSize(previousStatus)
+                + longFieldSize(taskStatusDTO.getOccurredAt()) + longFieldSize(taskStatusDTO.getUserId());
+        Writer writer = new Writer(new byte[size]);
+        writer.writeByte(VERSION);
+        writer.writeLongField(TAG_TASK_ID, taskStatusDTO.getTaskId());
+        writer.writeBytesField(TAG_STATUS, status);
+        writer.writeBytesField(TAG_DESCRIPTION, description);
+        writer.writeLongField(TAG_EVENT_ID, taskStatusDTO.getEventId());
+        writer.writeBytesField(TAG_PREVIOUS_STATUS, previousStatus);
+        writer.writeLongField(TAG_OCCURRED_AT, taskStatusDTO.getOccurredAt());
+        writer.writeLongField(TAG_USER_ID, taskStatusDTO.getUserId());
+        return writer.buffer;
+    }
+
+    /**
+     * Декодирует событие из двоичного формата.
+     *
+     * @param data закодированное событие.
+     * @return событие изменения статуса задачи.
+     * @throws SerializationException если версия формата не поддерживается или данные повреждены.
+     */
+    public static TaskStatusDTO decode(byte[] data) {
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new SerializationException("Unsupported task status format version: " + (data.length == 0 ? "empty" : data[0]));
+        }
+        TaskStatusDTO taskStatusDTO = new TaskStatusDTO();
+        Reader reader = new Reader(data, 1);
+        while (reader.hasRemaining()) {
+            int tag = reader.readByte();
+            long length = reader.readVarint();
+            if (length < 0 || length > data.length - reader.position) {
+                throw new SerializationException("Corrupted task status message: field " + tag + " exceeds message length");
+            }
+            int end = reader.position + (int) length;
+            switch (tag) {
+                case TAG_TASK_ID -> taskStatusDTO.setTaskId(decodeZigzag(reader.readVarint()));
+                case TAG_STATUS -> taskStatusDTO.setStatus(new String(data, reader.position, (int) length, StandardCharsets.UTF_8));
+                case TAG_DESCRIPTION -> taskStatusDTO.setDescription(new String(data, reader.position, (int) length, StandardCharsets.UTF_8));
+                case TAG_EVENT_ID -> taskStatusDTO.setEventId(decodeZigzag(reader.readVarint()));
+                case TAG_PREVIOUS_STATUS -> taskStatusDTO.setPreviousStatus(new String(data, reader.position, (int) length, StandardCharsets.UTF_8));
+                case TAG_OCCURRED_AT -> taskStatusDTO.setOccurredAt(decodeZigzag(reader.readVarint()));
+                case TAG_USER_ID -> taskStatusDTO.setUserId(decodeZigzag(reader.readVarint()));
+                default -> {
+                    // Поле из более новой версии схемы
+                }
+            }
+            reader.position = end;
+        }
+        return taskStatusDTO;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int longFieldSize(Long value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = varintSize(encodeZigzag(value));
+        return 1 + varintSize(length) + length;
+    }
+
+    private static int bytesFieldSize(byte[] value) {
+        return value == null ? 0 : 1 + varintSize(value.length) + value.length;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long encodeZigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long decodeZigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private final byte[] buffer;
+        private int position;
+
+        private Writer(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private void writeByte(int value) {
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private void writeLongField(int tag, Long value) {
+            if (value != null) {
+                long zigzag = encodeZigzag(value);
+                writeByte(tag);
+                writeVarint(varintSize(zigzag));
+                writeVarint(zigzag);
+            }
+        }
+
+        private void writeBytesField(int tag, byte[] value) {
+            if (value != null) {
+                writeByte(tag);
+                writeVarint(value.length);
+                System.arraycopy(value, 0, buffer, position, value.length);
+                position += value.length;
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private boolean hasRemaining() {
+            return position < data.length;
+        }
+
+        private int readByte() {
+            if (position >= data.length) {
+                throw new SerializationException("Corrupted task status message: unexpected end of data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Corrupted task status message: varint is too long");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.t1.school.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import ru.t1.school.dto.TaskStatusDTO;
+
+/**
+ * Десериализатор событий {@link TaskStatusDTO} из Kafka.
+ * <p>
+ * Формат определяется по первому байту сообщения: {@code '{'} — JSON (в том числе записанный
+ * прежними версиями приложения с заголовками типа, которые игнорируются), иначе — двоичный формат
+ * {@link TaskStatusBinaryCodec}. Поэтому во время миграции в топике могут находиться сообщения обоих форматов.
+ * </p>
+ */
+public class TaskStatusDeserializer implements Deserializer<TaskStatusDTO> {
+
+    private final JsonDeserializer<TaskStatusDTO> jsonDeserializer = new JsonDeserializer<>(TaskStatusDTO.class, false);
+
+    @Override
+    public TaskStatusDTO deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length > 0 && data[0] == '{') {
+            return jsonDeserializer.deserialize(topic, data);
+        }
+        return TaskStatusBinaryCodec.decode(data);
+    }
+
+    @Override
+    public TaskStatusDTO deserialize(String topic, Headers headers, byte[] data) {
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
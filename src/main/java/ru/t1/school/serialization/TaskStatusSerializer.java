@@ -0,0 +1,48 @@
+package ru.t1.school.serialization;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.t1.school.dto.TaskStatusDTO;
+
+/**
+ * Сериализатор событий {@link TaskStatusDTO} для Kafka.
+ * <p>
+ * Записывает события в двоичном формате {@link TaskStatusBinaryCodec} или в JSON без заголовков
+ * с типом. JSON нужен на время миграции, пока в группе остаются консьюмеры, не умеющие читать
+ * двоичный формат.
+ * </p>
+ */
+public class TaskStatusSerializer implements Serializer<TaskStatusDTO> {
+
+    /**
+     * Формат сообщений в топике.
+     */
+    public enum Format {
+        JSON, BINARY
+    }
+
+    private final Format format;
+    private final JsonSerializer<TaskStatusDTO> jsonSerializer = new JsonSerializer<TaskStatusDTO>().noTypeInfo();
+
+    /**
+     * Создает сериализатор.
+     *
+     * @param format формат, в котором записываются события.
+     */
+    public TaskStatusSerializer(Format format) {
+        this.format = format;
+    }
+
+    @Override
+    public byte[] serialize(String topic, TaskStatusDTO data) {
+        if (data == null) {
+            return null;
+        }
+        return format == Format.BINARY ? TaskStatusBinaryCodec.encode(data) : jsonSerializer.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
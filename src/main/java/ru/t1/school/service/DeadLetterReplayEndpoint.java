@@ -0,0 +1,45 @@
+package ru.t1.school.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Actuator-эндпоинт для повторной публикации недоставленных уведомлений.
+ * <p>
+ * Пример: {@code POST /actuator/dltreplay {"limit": 1000}}. Пока выполняется предыдущая переигровка,
+ * эндпоинт отвечает 409.
+ * </p>
+ */
+@Component
+@Endpoint(id = "dltreplay")
+public class DeadLetterReplayEndpoint {
+
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    public DeadLetterReplayEndpoint(DeadLetterReplayService deadLetterReplayService) {
+        this.deadLetterReplayService = deadLetterReplayService;
+    }
+
+    /**
+     * Публикует недоставленные сообщения в топик статусов задач.
+     *
+     * @param limit максимальное количество сообщений, по умолчанию 1000.
+     * @return количество опубликованных сообщений или ответ 409, если переигровка уже выполняется.
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> replay(@Nullable Integer limit) {
+        OptionalInt replayed = deadLetterReplayService.replay(limit != null ? limit : DEFAULT_LIMIT);
+        if (replayed.isEmpty()) {
+            return new WebEndpointResponse<>(Map.of("error", "replay already running"), WebEndpointResponse.STATUS_CONFLICT);
+        }
+        return new WebEndpointResponse<>(Map.of("replayed", replayed.getAsInt()));
+    }
+}
@@ -0,0 +1,131 @@
+package ru.t1.school.service;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сервис для повторной публикации недоставленных сообщений в топик статусов задач.
+ * <p>
+ * Сообщения читаются из топика недоставленных сообщений в отдельной группе консьюмеров,
+ * смещения которой фиксируются после подтверждения публикации, поэтому каждое сообщение
+ * переигрывается один раз. Уже отправленные уведомления отбрасываются консьюмером
+ * по идентификатору события. Переигранное сообщение продолжает трассу исходного изменения задачи.
+ * </p>
+ */
+@Service
+public class DeadLetterReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterReplayService.class);
+
+    private final ConsumerFactory<String, TaskStatusDTO> consumerFactory;
+    private final TaskStatusPublisher taskStatusPublisher;
+    private final TaskStatusTracing taskStatusTracing;
+    private final String deadLetterTopic;
+    private final String replayGroupId;
+    private final Duration pollTimeout;
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param consumerFactory     фабрика консьюмеров Kafka.
+     * @param taskStatusPublisher отправитель событий в топик статусов задач.
+     * @param taskStatusTracing   трассировка событий о смене статуса задач.
+     * @param retryRouter         маршрутизатор неудачных сообщений по топикам повторов.
+     * @param groupId             группа консьюмеров уведомлений.
+     * @param pollTimeoutMs       время ожидания новых сообщений, после которого топик считается прочитанным.
+     */
+    @Autowired
+    public DeadLetterReplayService(ConsumerFactory<String, TaskStatusDTO> consumerFactory,
+                                   TaskStatusPublisher taskStatusPublisher,
+                                   TaskStatusTracing taskStatusTracing,
+                                   NotificationRetryRouter retryRouter,
+                                   @Value("${kafka.group-id}") String groupId,
+                                   @Value("${kafka.retry.replay-poll-timeout-ms}") long pollTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.taskStatusPublisher = taskStatusPublisher;
+        this.taskStatusTracing = taskStatusTracing;
+        this.deadLetterTopic = retryRouter.getDeadLetterTopic();
+        this.replayGroupId = groupId + "-dlt-replay";
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMs);
+    }
+
+    /**
+     * Публикует очередные недоставленные сообщения в топик статусов задач.
+     * <p>
+     * Одновременно выполняется только одна переигровка; повторный вызов во время нее сразу
+     * возвращает пустой результат, а не ждет. Используется {@link ReentrantLock}, а не {@code synchronized}:
+     * блокировка удерживается на время чтения из Kafka и ожидания публикации, и монитор закрепил бы
+     * виртуальный поток запроса за потоком-носителем.
+     * </p>
+     *
+     * @param limit максимальное количество сообщений.
+     * @return количество опубликованных сообщений или пустой результат, если переигровка уже выполняется.
+     */
+    public OptionalInt replay(int limit) {
+        if (!replayLock.tryLock()) {
+            logger.info("Replay from {} is already running", deadLetterTopic);
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(replayLocked(limit));
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private int replayLocked(int limit) {
+        int read = 0;
+        int replayed = 0;
+        try (Consumer<String, TaskStatusDTO> consumer = consumerFactory.createConsumer(replayGroupId, null)) {
+            consumer.assign(consumer.partitionsFor(deadLetterTopic).stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .toList());
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            List<CompletableFuture<?>> results = new ArrayList<>();
+            while (read < limit) {
+                ConsumerRecords<String, TaskStatusDTO> records = consumer.poll(pollTimeout);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<String, TaskStatusDTO> record : records) {
+                    if (read == limit) {
+                        break;
+                    }
+                    if (record.value() != null) {
+                        results.add(taskStatusPublisher.publish(record.value(), taskStatusTracing.traceparent(record.headers())));
+                        replayed++;
+                    } else {
+                        logger.error("Skipping undeserializable message at offset {} of partition {} of {}",
+                                record.offset(), record.partition(), deadLetterTopic);
+                    }
+                    offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    read++;
+                }
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+            consumer.commitSync(offsets);
+        }
+        logger.info("Replayed {} messages from {}", replayed, deadLetterTopic);
+        return replayed;
+    }
+}
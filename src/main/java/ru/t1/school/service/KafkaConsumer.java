@@ -1,18 +1,43 @@
 package ru.t1.school.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.TimestampType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.mail.MailAuthenticationException;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.t1.school.dto.TaskStatusDTO;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
 /**
  * Сервис для потребления сообщений из Kafka и отправки уведомлений по электронной почте.
+ * <p>
+ * Обработка каждого сообщения продолжает трассу изменения задачи из заголовков сообщения
+ * (см. {@link TaskStatusTracing}). Время от публикации сообщения до его получения записывается
+ * в {@code task.status.queue.time} по топикам, время от изменения задачи до отправки письма —
+ * в {@code task.status.end.to.end}. Обе величины вычисляются по часам разных процессов, поэтому
+ * включают расхождение часов между экземплярами.
+ * </p>
  */
 @Service
 public class KafkaConsumer {
@@ -20,63 +45,244 @@ public class KafkaConsumer {
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumer.class);
 
     private final NotificationService notificationService;
+    private final TaskStatusTracing taskStatusTracing;
+    private final MeterRegistry meterRegistry;
+    private final ProcessedEventStore processedEventStore;
+    private final NotificationRetryRouter retryRouter;
     private final String notificationEmail;
+    private final long batchTimeoutMs;
+    private final long retryBackoffMs;
+    private final Timer endToEndTimer;
+    private final Map<String, Timer> queueTimers = new ConcurrentHashMap<>();
 
     /**
      * Конструктор для внедрения зависимостей.
      *
      * @param notificationService сервис для отправки уведомлений.
+     * @param taskStatusTracing   трассировка событий о смене статуса задач.
+     * @param meterRegistry       реестр метрик.
+     * @param processedEventStore хранилище событий, уведомления о которых уже отправлены.
+     * @param retryRouter         маршрутизатор неудачных сообщений по топикам повторов.
      * @param notificationEmail   адрес электронной почты для отправки уведомлений.
+     * @param batchTimeoutMs      максимальное время ожидания отправки уведомлений пачки.
+     * @param retryBackoffMs      пауза перед повторной обработкой необработанной части пачки.
      */
     @Autowired
-    public KafkaConsumer(NotificationService notificationService, @Value("${notification.email}") String notificationEmail) {
+    public KafkaConsumer(NotificationService notificationService,
+                         TaskStatusTracing taskStatusTracing,
+                         MeterRegistry meterRegistry,
+                         ProcessedEventStore processedEventStore,
+                         NotificationRetryRouter retryRouter,
+                         @Value("${notification.email}") String notificationEmail,
+                         @Value("${notification.dispatch.batch-timeout-ms}") long batchTimeoutMs,
+                         @Value("${notification.dispatch.retry-backoff-ms}") long retryBackoffMs) {
         this.notificationService = notificationService;
+        this.taskStatusTracing = taskStatusTracing;
+        this.meterRegistry = meterRegistry;
+        this.processedEventStore = processedEventStore;
+        this.retryRouter = retryRouter;
         this.notificationEmail = notificationEmail;
+        this.batchTimeoutMs = batchTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.endToEndTimer = Timer.builder("task.status.end.to.end")
+                .description("Время от изменения задачи до отправки письма о смене ее статуса")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
 
     /**
-     * Потребляет сообщения из темы Kafka и отправляет уведомления.
+     * Потребляет пачку сообщений из темы Kafka и отправляет уведомления.
      * <p>
-     * Этот метод аннотирован как {@link KafkaListener}, что позволяет ему автоматически получать сообщения
-     * из указанной темы Kafka. После получения сообщения оно логируется и асинхронно отправляется уведомление.
+     * Сообщения, уведомления по которым отправить не удалось, переносятся в топик повторов
+     * (см. {@link NotificationRetryRouter}), и пачка подтверждается целиком: ошибки SMTP-сервера
+     * не задерживают остальные сообщения раздела. Только если перенос не удался, сообщения
+     * начиная с неперенесенного будут получены повторно после паузы.
      * </p>
      *
-     * @param taskStatusDTO сообщение, полученное из темы Kafka.
-     * @param ack           объект для подтверждения обработки сообщения.
+     * @param records пачка сообщений, полученная из темы Kafka.
+     * @param ack     объект для подтверждения обработки сообщений.
      */
     @KafkaListener(topics = "${kafka.topic.client}", groupId = "${kafka.group-id}")
-    public void consume(TaskStatusDTO taskStatusDTO, Acknowledgment ack) {
-        // Логирование полученного сообщения
-        logger.info("Received message: {}", taskStatusDTO);
-
-        try {
-            // Асинхронная отправка уведомления
-            sendNotificationAsync(taskStatusDTO);
-        } catch (Exception e) {
-            logger.error("Error while sending notification asynchronously for message: {}", taskStatusDTO, e);
+    public void consume(List<ConsumerRecord<String, TaskStatusDTO>> records, Acknowledgment ack) {
+        logger.info("Received batch of {} messages", records.size());
+        acknowledge(records, process(records), ack);
+    }
+
+    /**
+     * Отправляет уведомления по пачке сообщений и переносит неудачные в следующий топик повторов.
+     * <p>
+     * Уведомления пачки ставятся в очередь {@link NotificationService} и отправляются параллельно
+     * через пул SMTP-соединений. Сообщения, уведомления о которых уже отправлены (повторная доставка
+     * после перебалансировки или повтор из топика повторов), пропускаются без обращения к SMTP-серверу:
+     * идентификаторы событий проверяются в {@link ProcessedEventStore} и записываются туда после
+     * успешной отправки. Повтор возможен, только если экземпляр остановится между отправкой письма
+     * и этой записью. События, в которых статус задачи не изменился (изменены только другие поля),
+     * уведомлений не порождают.
+     * </p>
+     *
+     * @param records пачка сообщений.
+     * @return индекс первого сообщения, которое не удалось ни обработать, ни перенести в топик повторов,
+     *         или {@code -1}, если обработана вся пачка.
+     */
+    public int process(List<ConsumerRecord<String, TaskStatusDTO>> records) {
+        Set<Long> processed = processedEventStore.findProcessed(records.stream()
+                .map(KafkaConsumer::eventId)
+                .filter(Objects::nonNull)
+                .toList());
+        // Событие, повторенное в пачке, отправляется один раз; ключ — событие, значение — индекс сообщения, которое его отправляет
+        Map<Long, Integer> owners = new HashMap<>();
+        List<CompletableFuture<Void>> results = IntStream.range(0, records.size())
+                .mapToObj(i -> dispatch(records.get(i), i, processed, owners))
+                .toList();
+
+        Throwable[] failures = await(results);
+        processedEventStore.markProcessed(delivered(records, failures, owners));
+        for (int i = 0; i < records.size(); i++) {
+            if (failures[i] != null) {
+                try {
+                    retryRouter.forward(records.get(i), failures[i] instanceof Exception e ? e : new IllegalStateException(failures[i]));
+                } catch (Exception e) {
+                    logger.error("Failed to forward message at offset {} of partition {} to retry topic",
+                            records.get(i).offset(), records.get(i).partition(), e);
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Подтверждает пачку или, если часть пачки не обработана, запрашивает ее повторную доставку после паузы.
+     *
+     * @param records   пачка сообщений.
+     * @param unhandled индекс первого необработанного сообщения или {@code -1}.
+     * @param ack       объект для подтверждения обработки сообщений.
+     */
+    public void acknowledge(List<ConsumerRecord<String, TaskStatusDTO>> records, int unhandled, Acknowledgment ack) {
+        if (unhandled < 0) {
+            ack.acknowledge();
+        } else {
+            logger.warn("Message at offset {} of partition {} was not handled, {} messages will be redelivered",
+                    records.get(unhandled).offset(), records.get(unhandled).partition(), records.size() - unhandled);
+            ack.nack(unhandled, Duration.ofMillis(retryBackoffMs));
+        }
+    }
+
+    private CompletableFuture<Void> dispatch(ConsumerRecord<String, TaskStatusDTO> record, int index,
+                                             Set<Long> processed, Map<Long, Integer> owners) {
+        Span span = taskStatusTracing.startReceive(record);
+        try (Tracer.SpanInScope ignored = taskStatusTracing.withSpan(span)) {
+            if (record.timestampType() == TimestampType.CREATE_TIME) {
+                queueTimer(record.topic()).record(Math.max(0, System.currentTimeMillis() - record.timestamp()), TimeUnit.MILLISECONDS);
+            }
+            return sendNotification(record, index, processed, owners);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private CompletableFuture<Void> sendNotification(ConsumerRecord<String, TaskStatusDTO> record, int index,
+                                                     Set<Long> processed, Map<Long, Integer> owners) {
+        TaskStatusDTO taskStatusDTO = record.value();
+        if (taskStatusDTO == null) {
+            // Сообщение не удалось десериализовать, повторная обработка не поможет
+            logger.error("Skipping undeserializable message at offset {} of partition {}", record.offset(), record.partition());
+            return CompletableFuture.completedFuture(null);
+        }
+        Long eventId = taskStatusDTO.getEventId();
+        if (eventId != null && (processed.contains(eventId) || owners.putIfAbsent(eventId, index) != null)) {
+            logger.debug("Skipping already processed event {} at offset {} of partition {}",
+                    eventId, record.offset(), record.partition());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (taskStatusDTO.getStatus() != null && taskStatusDTO.getStatus().equals(taskStatusDTO.getPreviousStatus())) {
+            logger.debug("Skipping event {} of task {} without status change", eventId, taskStatusDTO.getTaskId());
+            return CompletableFuture.completedFuture(null);
+        }
+        logger.debug("Dispatching notification for message: {}", taskStatusDTO);
+        CompletableFuture<Void> result = notificationService.sendNotification(notificationEmail, "Task Status Update",
+                "Task " + taskStatusDTO.getTaskId() + ": " + describe(taskStatusDTO));
+        Long occurredAt = taskStatusDTO.getOccurredAt();
+        if (occurredAt != null) {
+            result.thenRun(() -> endToEndTimer.record(Math.max(0, System.currentTimeMillis() - occurredAt), TimeUnit.MILLISECONDS));
         }
+        return result;
+    }
 
-        // Подтверждение обработки сообщения
-        ack.acknowledge();
+    private Timer queueTimer(String topic) {
+        return queueTimers.computeIfAbsent(topic, key -> Timer.builder("task.status.queue.time")
+                .description("Время от публикации события о смене статуса задачи до его получения консьюмером")
+                .tag("topic", topic)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
     }
 
     /**
-     * Асинхронно отправляет уведомление по электронной почте.
+     * Формирует текст уведомления; для объединенных событий описание последнего события
+     * может не отражать весь переход, поэтому он описывается по статусам.
+     */
+    private static String describe(TaskStatusDTO taskStatusDTO) {
+        if (taskStatusDTO.getPreviousStatus() == null) {
+            return taskStatusDTO.getDescription();
+        }
+        return "status changed from " + taskStatusDTO.getPreviousStatus() + " to " + taskStatusDTO.getStatus();
+    }
+
+    /**
+     * Возвращает идентификаторы событий, уведомления о которых отправлены при обработке этой пачки.
      * <p>
-     * Этот метод аннотирован как {@link Async}, что позволяет ему выполняться в отдельном потоке.
-     * Он использует {@link NotificationService} для отправки уведомления по электронной почте.
+     * Учитывается только сообщение, которое отправляло уведомление о событии: пропущенные копии
+     * завершаются без ошибки, даже если отправка не удалась и событие перенесено в топик повторов.
      * </p>
      *
-     * @param taskStatusDTO объект {@link TaskStatusDTO}, содержащий информацию о задаче.
+     * @param records  пачка сообщений.
+     * @param failures ошибки отправки в порядке сообщений пачки.
+     * @param owners   индексы сообщений, отправлявших уведомления, по идентификаторам событий.
+     * @return идентификаторы событий.
+     */
+    private Set<Long> delivered(List<ConsumerRecord<String, TaskStatusDTO>> records,
+                                Throwable[] failures, Map<Long, Integer> owners) {
+        Set<Long> delivered = new LinkedHashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            Long eventId = eventId(records.get(i));
+            if (eventId != null && Integer.valueOf(i).equals(owners.get(eventId)) && failures[i] == null) {
+                delivered.add(eventId);
+            }
+        }
+        return delivered;
+    }
+
+    private static Long eventId(ConsumerRecord<String, TaskStatusDTO> record) {
+        return record.value() == null ? null : record.value().getEventId();
+    }
+
+    /**
+     * Ожидает завершения всех отправок пачки.
+     *
+     * @param results результаты отправки в порядке сообщений пачки.
+     * @return ошибки отправки в порядке сообщений пачки; {@code null} для успешных отправок.
      */
-    @Async
-    public void sendNotificationAsync(TaskStatusDTO taskStatusDTO) {
-        try {
-            notificationService.sendNotification(notificationEmail, "Task Status Update", taskStatusDTO.getDescription());
-        } catch (MailAuthenticationException e) {
-            logger.error("Mail authentication failed for message: {}", taskStatusDTO, e);
-        } catch (Exception e) {
-            logger.error("Unexpected error sending notification for message: {}", taskStatusDTO, e);
+    private Throwable[] await(List<CompletableFuture<Void>> results) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMs);
+        Throwable[] failures = new Throwable[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Последующие незавершенные отправки тоже сразу завершатся с этой ошибкой
+                Thread.currentThread().interrupt();
+                failures[i] = e;
+            } catch (ExecutionException e) {
+                logger.error("Error while sending notification", e.getCause());
+                failures[i] = e.getCause();
+            } catch (TimeoutException e) {
+                logger.error("Notification was not sent within {} ms", batchTimeoutMs);
+                failures[i] = e;
+            }
         }
+        return failures;
     }
 }
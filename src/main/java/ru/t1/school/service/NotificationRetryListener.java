@@ -0,0 +1,131 @@
+package ru.t1.school.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Слушатель топиков повторов, повторно отправляющий уведомления по неудачным сообщениям.
+ * <p>
+ * Для каждого топика повторов создается отдельный контейнер: пауза в одном топике не задерживает
+ * другие. Сообщения обрабатываются не раньше момента из заголовка {@link NotificationRetryRouter#DUE_AT_HEADER};
+ * пауза одинакова для всех сообщений топика, поэтому, встретив первое сообщение, время которого не пришло,
+ * контейнер приостанавливается до этого момента. Неудачные сообщения переносятся в следующий
+ * топик повторов, а после последней попытки — в топик недоставленных сообщений.
+ * </p>
+ */
+@Component
+public class NotificationRetryListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetryListener.class);
+
+    /**
+     * Время ожидания сообщений за один poll; приостановленный контейнер возобновляется только после poll,
+     * поэтому оно ограничивает точность паузы перед повтором.
+     */
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    private final ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> containerFactory;
+    private final KafkaConsumer kafkaConsumer;
+    private final NotificationRetryRouter retryRouter;
+    private final String groupId;
+    private final boolean autoStartup;
+    private final List<ConcurrentMessageListenerContainer<String, TaskStatusDTO>> containers = new ArrayList<>();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param containerFactory фабрика контейнеров слушателей Kafka.
+     * @param kafkaConsumer    обработчик сообщений о смене статуса задач.
+     * @param retryRouter      маршрутизатор неудачных сообщений по топикам повторов.
+     * @param groupId          группа консьюмеров.
+     * @param autoStartup      запускать ли слушателей вместе с приложением.
+     */
+    @Autowired
+    public NotificationRetryListener(@Qualifier("kafkaListenerContainerFactory")
+                                     ConcurrentKafkaListenerContainerFactory<String, TaskStatusDTO> containerFactory,
+                                     KafkaConsumer kafkaConsumer,
+                                     NotificationRetryRouter retryRouter,
+                                     @Value("${kafka.group-id}") String groupId,
+                                     @Value("${kafka.listener.auto-startup}") boolean autoStartup) {
+        this.containerFactory = containerFactory;
+        this.kafkaConsumer = kafkaConsumer;
+        this.retryRouter = retryRouter;
+        this.groupId = groupId;
+        this.autoStartup = autoStartup;
+    }
+
+    /**
+     * Обрабатывает пачку сообщений из топика повторов, время повтора которых пришло.
+     *
+     * @param records пачка сообщений из топика повторов.
+     * @param ack     объект для подтверждения обработки сообщений.
+     */
+    public void consume(List<ConsumerRecord<String, TaskStatusDTO>> records, Acknowledgment ack) {
+        long now = System.currentTimeMillis();
+        int due = 0;
+        while (due < records.size() && retryRouter.dueAt(records.get(due)) <= now) {
+            due++;
+        }
+        if (due > 0) {
+            logger.info("Retrying batch of {} messages from {}", due, records.get(0).topic());
+        }
+        int unhandled = kafkaConsumer.process(records.subList(0, due));
+        if (unhandled >= 0 || due == records.size()) {
+            kafkaConsumer.acknowledge(records, unhandled, ack);
+        } else {
+            // Обработанные сообщения подтверждаются, остальные будут получены снова после паузы
+            ack.nack(due, Duration.ofMillis(retryRouter.dueAt(records.get(due)) - now));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        for (String topic : retryRouter.getRetryTopics()) {
+            ConcurrentMessageListenerContainer<String, TaskStatusDTO> container = containerFactory.createContainer(topic);
+            container.getContainerProperties().setGroupId(groupId);
+            container.getContainerProperties().setPollTimeout(POLL_TIMEOUT_MS);
+            container.setBeanName(topic);
+            container.setupMessageListener((BatchAcknowledgingMessageListener<String, TaskStatusDTO>) this::consume);
+            container.start();
+            containers.add(container);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        containers.clear();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !containers.isEmpty();
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    @Override
+    public int getPhase() {
+        // Запускается и останавливается вместе с остальными слушателями Kafka
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Маршрутизирует сообщения, уведомления по которым не удалось отправить, по топикам повторов.
+ * <p>
+ * Неудачное сообщение из топика статусов задач переносится в {@code <топик>.retry-0}, из него —
+ * в {@code <топик>.retry-1} и так далее, а после последней попытки — в {@code <топик>.DLT}.
+ * Пауза перед повторной обработкой растет экспоненциально от топика к топику и передается
+ * в заголовке {@link #DUE_AT_HEADER}, поэтому ошибки не задерживают обработку основного топика.
+ * Сообщение сохраняет ключ, и все повторы одной задачи попадают в один раздел.
+ * </p>
+ */
+@Component
+public class NotificationRetryRouter {
+
+    /**
+     * Заголовок с моментом (миллисекунды Unix-времени), раньше которого сообщение из топика повторов не обрабатывается.
+     */
+    public static final String DUE_AT_HEADER = "task-status-retry-due-at";
+
+    private final String taskStatusTopic;
+    private final List<String> retryTopics;
+    private final List<Long> retryDelaysMs;
+    private final String deadLetterTopic;
+    private final DeadLetterPublishingRecoverer recoverer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> forwardedCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param kafkaTemplate   шаблон Kafka для отправки сообщений в топики повторов.
+     * @param meterRegistry   реестр метрик.
+     * @param taskStatusTopic топик статусов задач.
+     * @param attempts        количество топиков повторов.
+     * @param initialDelayMs  пауза перед первым повтором.
+     * @param multiplier      множитель паузы для каждого следующего повтора.
+     * @param maxDelayMs      максимальная пауза перед повтором.
+     */
+    @Autowired
+    public NotificationRetryRouter(KafkaTemplate<String, TaskStatusDTO> kafkaTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${kafka.topic.client}") String taskStatusTopic,
+                                   @Value("${kafka.retry.attempts}") int attempts,
+                                   @Value("${kafka.retry.initial-delay-ms}") long initialDelayMs,
+                                   @Value("${kafka.retry.multiplier}") double multiplier,
+                                   @Value("${kafka.retry.max-delay-ms}") long maxDelayMs) {
+        this.taskStatusTopic = taskStatusTopic;
+        this.meterRegistry = meterRegistry;
+        this.deadLetterTopic = taskStatusTopic + ".DLT";
+        List<String> topics = new ArrayList<>(attempts);
+        List<Long> delays = new ArrayList<>(attempts);
+        double delay = initialDelayMs;
+        for (int i = 0; i < attempts; i++) {
+            topics.add(taskStatusTopic + ".retry-" + i);
+            delays.add(Math.min((long) delay, maxDelayMs));
+            delay *= multiplier;
+        }
+        this.retryTopics = Collections.unmodifiableList(topics);
+        this.retryDelaysMs = Collections.unmodifiableList(delays);
+
+        this.recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, exception) -> new TopicPartition(nextTopic(record.topic()), -1));
+        // Заголовки исходного сообщения сохраняются с первого переноса и не накапливаются
+        this.recoverer.setAppendOriginalHeaders(false);
+        this.recoverer.setHeadersFunction((record, exception) -> {
+            int index = retryTopics.indexOf(nextTopic(record.topic()));
+            if (index < 0) {
+                return new RecordHeaders();
+            }
+            long dueAt = System.currentTimeMillis() + retryDelaysMs.get(index);
+            return new RecordHeaders(new Header[]{new DeadLetterPublishingRecoverer.SingleRecordHeader(DUE_AT_HEADER,
+                    String.valueOf(dueAt).getBytes(StandardCharsets.UTF_8))});
+        });
+    }
+
+    /**
+     * Возвращает топики повторов в порядке попыток.
+     *
+     * @return топики повторов.
+     */
+    public List<String> getRetryTopics() {
+        return retryTopics;
+    }
+
+    /**
+     * Возвращает топик сообщений, исчерпавших все попытки.
+     *
+     * @return топик недоставленных сообщений.
+     */
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /**
+     * Синхронно переносит сообщение в следующий топик повторов или в топик недоставленных сообщений.
+     *
+     * @param record    сообщение, уведомление по которому не удалось отправить.
+     * @param exception причина неудачи.
+     * @throws org.springframework.kafka.KafkaException если брокер не подтвердил запись.
+     */
+    public void forward(ConsumerRecord<?, ?> record, Exception exception) {
+        String topic = nextTopic(record.topic());
+        recoverer.accept(record, exception);
+        forwardedCounters.computeIfAbsent(topic, key -> Counter.builder("notification.retry.forwarded")
+                .description("Количество сообщений, перенесенных в топики повторов и недоставленных сообщений")
+                .tag("topic", topic)
+                .register(meterRegistry)).increment();
+    }
+
+    /**
+     * Возвращает момент, раньше которого сообщение из топика повторов не обрабатывается.
+     *
+     * @param record сообщение из топика повторов.
+     * @return момент в миллисекундах Unix-времени или {@code 0}, если заголовка нет.
+     */
+    public long dueAt(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_AT_HEADER);
+        return header == null ? 0 : Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+    }
+
+    private String nextTopic(String topic) {
+        if (topic.equals(taskStatusTopic)) {
+            return retryTopics.isEmpty() ? deadLetterTopic : retryTopics.get(0);
+        }
+        int index = retryTopics.indexOf(topic);
+        return index >= 0 && index + 1 < retryTopics.size() ? retryTopics.get(index + 1) : deadLetterTopic;
+    }
+}
@@ -1,19 +1,53 @@
 package ru.t1.school.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.mail.MailAuthenticationException;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Сервис для отправки уведомлений по электронной почте.
  * <p>
- * Этот класс используется для отправки уведомлений по электронной почте с использованием {@link JavaMailSender}.
- * Он включает в себя методы для отправки простых текстовых сообщений.
+ * Уведомления не отправляются сразу, а накапливаются в очереди. Очередь сбрасывается по таймеру
+ * или при достижении заданного размера; уведомления одному получателю, накопленные за это время,
+ * объединяются в одно письмо-дайджест. Письма отправляются через пул повторно используемых
+ * SMTP-соединений {@link SmtpTransportPool}, по несколько писем на соединение.
+ * </p>
+ * <p>
+ * Каждое уведомление сопровождается спаном {@code notification send}, дочерним к текущему спану
+ * вызывающего потока; спан завершается после отправки письма, а начало SMTP-отправки отмечается
+ * в нем событием {@code smtp.send}, так что в трассе видно время ожидания в очереди отдельно от отправки.
  * </p>
  */
 @Service
@@ -21,48 +55,235 @@ public class NotificationService {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
-    private final JavaMailSender mailSender;
+    private final SmtpTransportPool transportPool;
+    private final TaskExecutor notificationExecutor;
+    private final Tracer tracer;
     private final String fromEmail;
+    private final int flushSize;
+    private final int messagesPerConnection;
+
+    private final Lock lock = new ReentrantLock();
+    private Map<String, Digest> pending = new LinkedHashMap<>();
+    private int pendingCount;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Timer sendTimer;
+    private final Counter enqueuedCounter;
+    private final Counter sentCounter;
 
     /**
      * Конструктор для внедрения зависимостей.
      *
-     * @param mailSender объект для отправки электронной почты.
-     * @param fromEmail  адрес электронной почты отправителя, полученный из конфигурационного файла.
+     * @param transportPool         пул SMTP-соединений; создается при первом обращении.
+     * @param notificationExecutor  пул потоков, в котором выполняется отправка писем.
+     * @param tracer                трассировщик.
+     * @param meterRegistry         реестр метрик.
+     * @param fromEmail             адрес электронной почты отправителя, полученный из конфигурационного файла.
+     * @param flushSize             количество накопленных уведомлений, при котором очередь сбрасывается досрочно.
+     * @param messagesPerConnection количество писем, отправляемых подряд через одно соединение.
      */
     @Autowired
-    public NotificationService(JavaMailSender mailSender, @Value("${notification.email-from}") String fromEmail) {
-        this.mailSender = mailSender;
+    public NotificationService(@Lazy SmtpTransportPool transportPool,
+                               @Qualifier("notificationExecutor") TaskExecutor notificationExecutor,
+                               Tracer tracer,
+                               MeterRegistry meterRegistry,
+                               @Value("${notification.email-from}") String fromEmail,
+                               @Value("${notification.digest.flush-size}") int flushSize,
+                               @Value("${notification.digest.messages-per-connection}") int messagesPerConnection) {
+        this.transportPool = transportPool;
+        this.notificationExecutor = notificationExecutor;
+        this.tracer = tracer;
         this.fromEmail = fromEmail;
+        this.flushSize = flushSize;
+        this.messagesPerConnection = messagesPerConnection;
+        Gauge.builder("notification.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Количество уведомлений, ожидающих отправки")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("notification.send.latency")
+                .description("Время отправки одного письма через SMTP-соединение")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.enqueuedCounter = Counter.builder("notification.enqueued")
+                .description("Количество принятых уведомлений")
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("notification.emails.sent")
+                .description("Количество отправленных писем с учетом объединения в дайджесты")
+                .register(meterRegistry);
     }
 
     /**
-     * Отправляет уведомление по электронной почте.
+     * Ставит уведомление в очередь на отправку по электронной почте.
      * <p>
-     * Этот метод создает простое текстовое сообщение и отправляет его с использованием {@link JavaMailSender}.
-     * В случае ошибки аутентификации или другой ошибки при отправке будет выброшено соответствующее исключение.
+     * Уведомление будет отправлено при ближайшем сбросе очереди, возможно, в составе дайджеста
+     * вместе с другими уведомлениями тому же получателю.
      * </p>
      *
      * @param to      адрес электронной почты получателя.
      * @param subject тема письма.
      * @param text    текст письма.
-     * @throws MailAuthenticationException если аутентификация почты не удалась.
-     * @throws RuntimeException если отправка письма не удалась.
+     * @return результат, который завершается после отправки письма или с ошибкой
+     *         {@link MailAuthenticationException} / {@link MailSendException}.
+     */
+    public CompletableFuture<Void> sendNotification(String to, String subject, String text) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Span span = tracer.nextSpan().name("notification send").start();
+        result.whenComplete((ignored, e) -> {
+            if (e != null) {
+                span.error(e);
+            }
+            span.end();
+        });
+        boolean flushNow;
+        lock.lock();
+        try {
+            pending.computeIfAbsent(to, Digest::new).add(subject, text, result, span);
+            flushNow = ++pendingCount >= flushSize;
+        } finally {
+            lock.unlock();
+        }
+        queueDepth.incrementAndGet();
+        enqueuedCounter.increment();
+        if (flushNow) {
+            notificationExecutor.execute(this::flush);
+        }
+        return result;
+    }
+
+    /**
+     * Сбрасывает очередь: формирует письма по получателям и распределяет их по SMTP-соединениям.
+     */
+    @Scheduled(fixedDelayString = "${notification.digest.flush-interval-ms}")
+    public void flush() {
+        List<Digest> digests;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            digests = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            pendingCount = 0;
+        } finally {
+            lock.unlock();
+        }
+        for (int from = 0; from < digests.size(); from += messagesPerConnection) {
+            List<Digest> chunk = digests.subList(from, Math.min(from + messagesPerConnection, digests.size()));
+            notificationExecutor.execute(() -> sendChunk(chunk));
+        }
+    }
+
+    /**
+     * Отправляет накопленные уведомления при остановке приложения.
      */
-    public void sendNotification(String to, String subject, String text) {
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void sendChunk(List<Digest> digests) {
+        Transport transport = null;
+        int index = 0;
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-            mailSender.send(message);
-        } catch (MailAuthenticationException e) {
+            for (; index < digests.size(); index++) {
+                Digest digest = digests.get(index);
+                if (transport == null) {
+                    transport = transportPool.borrow();
+                }
+                long start = System.nanoTime();
+                digest.spans.forEach(span -> span.tag("notification.digest.size", digest.texts.size()).event("smtp.send"));
+                try {
+                    MimeMessage message = digest.toMessage(transportPool.getSession(), fromEmail);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    sentCounter.increment();
+                    complete(digest, null);
+                } catch (MessagingException e) {
+                    // После ошибки состояние SMTP-сеанса неизвестно, поэтому соединение не переиспользуется
+                    transportPool.release(transport, false);
+                    transport = null;
+                    complete(digest, translate(e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failRemaining(digests, index, new MailSendException("Interrupted while waiting for SMTP connection", e));
+        } catch (MessagingException e) {
+            failRemaining(digests, index, translate(e));
+        } catch (RuntimeException e) {
+            // Например, IllegalStateException от закрытого соединения или ошибка при формировании письма:
+            // без этого результаты оставшихся дайджестов не завершились бы, а queueDepth остался бы завышенным
+            logger.error("Failed to send email", e);
+            if (transport != null) {
+                transportPool.release(transport, false);
+                transport = null;
+            }
+            failRemaining(digests, index, new MailSendException("Failed to send email", e));
+        } finally {
+            if (transport != null) {
+                transportPool.release(transport, true);
+            }
+        }
+    }
+
+    private void failRemaining(List<Digest> digests, int from, MailException e) {
+        for (int i = from; i < digests.size(); i++) {
+            complete(digests.get(i), e);
+        }
+    }
+
+    private void complete(Digest digest, MailException e) {
+        queueDepth.addAndGet(-digest.results.size());
+        if (e == null) {
+            digest.results.forEach(result -> result.complete(null));
+        } else {
+            digest.results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private MailException translate(MessagingException e) {
+        if (e instanceof AuthenticationFailedException) {
             logger.error("Mail authentication failed: {}", e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            logger.error("Failed to send email: {}", e.getMessage());
-            throw new RuntimeException("Failed to send email", e);
+            return new MailAuthenticationException(e);
+        }
+        logger.error("Failed to send email: {}", e.getMessage());
+        return new MailSendException("Failed to send email", e);
+    }
+
+    /**
+     * Уведомления одному получателю, накопленные между сбросами очереди.
+     */
+    private static final class Digest {
+        private final String to;
+        private final List<String> subjects = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final List<CompletableFuture<Void>> results = new ArrayList<>();
+        private final List<Span> spans = new ArrayList<>();
+
+        private Digest(String to) {
+            this.to = to;
+        }
+
+        private void add(String subject, String text, CompletableFuture<Void> result, Span span) {
+            subjects.add(subject);
+            texts.add(text);
+            results.add(result);
+            spans.add(span);
+        }
+
+        private MimeMessage toMessage(Session session, String from) throws MessagingException {
+            MimeMessage message = new MimeMessage(session);
+            MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+            helper.setFrom(from);
+            helper.setTo(to);
+            if (texts.size() == 1) {
+                helper.setSubject(subjects.get(0));
+                helper.setText(texts.get(0));
+            } else {
+                helper.setSubject(subjects.get(0) + " (" + texts.size() + ")");
+                helper.setText(String.join("\n\n", texts));
+            }
+            message.saveChanges();
+            return message;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,218 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.t1.school.dto.TaskStatusDTO;
+import ru.t1.school.entity.OutboxEvent;
+import ru.t1.school.repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновый процесс, публикующий события из таблицы outbox в Kafka.
+ * <p>
+ * События выбираются пачками задач: каждая задача захватывается advisory-блокировкой до конца транзакции,
+ * поэтому все ее события публикует один экземпляр приложения, а задачи, захваченные другими экземплярами,
+ * пропускаются. События отправляются в топик статусов задач через {@link TaskStatusPublisher} в порядке
+ * записи ({@code created_at}, а не ID, который экземпляры получают из последовательности блоками)
+ * и удаляются из outbox только после подтверждения брокером.
+ * При ошибке отправки транзакция откатывается, и пачка будет отправлена повторно.
+ * Идентификатор строки outbox публикуется как идентификатор события, по которому консьюмеры
+ * отбрасывают повторно доставленные сообщения.
+ * </p>
+ * <p>
+ * События одной задачи объединяются: задача попадает в пачку, когда ее самому старому событию
+ * исполняется {@code outbox.relay.coalesce-window-ms}, и из всех ее накопившихся событий публикуется
+ * только последнее (со статусом задачи до первого из них). Поэтому количество сообщений в Kafka
+ * и писем зависит от числа измененных задач, а не от числа изменений. Счетчики {@code task.status.events.in} и {@code task.status.events.out}
+ * показывают количество событий до и после объединения.
+ * </p>
+ * <p>
+ * Опубликованное событие продолжает трассу запроса, записавшего в outbox последнее из объединенных
+ * событий; время изменения задачи в событии — время первого из них, чтобы консьюмер измерял
+ * задержку уведомления от самого раннего изменения.
+ * </p>
+ * <p>
+ * Подтверждения брокера ожидаются внутри транзакции, то есть с удерживаемыми блокировками задач
+ * и открытым соединением с базой, не дольше {@code outbox.relay.send-timeout-ms}. Блокировки не мешают
+ * запросам к задачам и записи новых событий, но новые события захваченных задач публикуются
+ * не раньше, чем закончится эта транзакция. Поэтому при недоступности брокера задержка публикации
+ * ограничена тайм-аутом отправки, а соединение возвращается в пул не позже, чем через него.
+ * </p>
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TaskStatusPublisher taskStatusPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Duration coalesceWindow;
+
+    private final Counter eventsInCounter;
+    private final Counter eventsOutCounter;
+    private final Timer batchTimer;
+    private final Timer lagTimer;
+    private final AtomicLong oldestEventAgeMs = new AtomicLong();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param outboxEventRepository репозиторий событий outbox.
+     * @param taskStatusPublisher   отправитель событий в Kafka.
+     * @param transactionTemplate   шаблон транзакций для обработки пачки.
+     * @param meterRegistry         реестр метрик.
+     * @param batchSize             максимальное количество задач в пачке.
+     * @param sendTimeoutMs         время ожидания подтверждения пачки брокером.
+     * @param coalesceWindowMs      окно, в течение которого события одной задачи объединяются.
+     */
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       TaskStatusPublisher taskStatusPublisher,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size}") int batchSize,
+                       @Value("${outbox.relay.send-timeout-ms}") long sendTimeoutMs,
+                       @Value("${outbox.relay.coalesce-window-ms}") long coalesceWindowMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.taskStatusPublisher = taskStatusPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.coalesceWindow = Duration.ofMillis(coalesceWindowMs);
+        this.eventsInCounter = Counter.builder("task.status.events.in")
+                .description("Количество событий, прочитанных из outbox до объединения")
+                .register(meterRegistry);
+        this.eventsOutCounter = Counter.builder("task.status.events.out")
+                .description("Количество событий, опубликованных в Kafka после объединения по задачам")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Время публикации одной пачки событий")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("outbox.relay.lag")
+                .description("Время между записью события в outbox и его публикацией")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.oldest.age", oldestEventAgeMs, AtomicLong::get)
+                .description("Возраст самого старого неопубликованного события")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Публикует все накопившиеся события пачками.
+     * <p>
+     * Если пачка заполнена полностью, сразу выбирается следующая, чтобы быстрее разобрать отставание.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            logger.error("Failed to relay outbox events, will retry", e);
+        } finally {
+            updateOldestEventAge();
+        }
+    }
+
+    private int relayBatch() {
+        List<Long> taskIds = outboxEventRepository.lockNextTasks(Instant.now().minus(coalesceWindow), batchSize);
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        // События читаются после захвата задач, чтобы не опубликовать повторно уже удаленные другим экземпляром
+        List<OutboxEvent> events = outboxEventRepository.findByTaskIdInOrderByCreatedAtAscIdAsc(taskIds);
+        if (events.isEmpty()) {
+            return taskIds.size();
+        }
+        long start = System.nanoTime();
+        Collection<TaskStatusDTO> latestEvents = coalesce(events);
+        Map<Long, String> traceparents = new HashMap<>();
+        events.forEach(event -> traceparents.put(event.getId(), event.getTraceparent()));
+        CompletableFuture<?>[] futures = latestEvents.stream()
+                .map(event -> taskStatusPublisher.publish(event, traceparents.get(event.getEventId())))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish outbox batch of " + events.size() + " events", e);
+        }
+        outboxEventRepository.deleteAllInBatch(events);
+
+        Instant now = Instant.now();
+        events.forEach(event -> lagTimer.record(Duration.between(event.getCreatedAt(), now)));
+        eventsInCounter.increment(events.size());
+        eventsOutCounter.increment(latestEvents.size());
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("Published {} of {} outbox events after coalescing", latestEvents.size(), events.size());
+        return taskIds.size();
+    }
+
+    /**
+     * Оставляет только последнее событие каждой задачи.
+     * <p>
+     * Объединенное событие получает статус до первого из объединенных событий и время первого
+     * изменения, поэтому переход {@code NEW -> IN_PROGRESS -> DONE} внутри окна публикуется
+     * как {@code NEW -> DONE}, а смена
+     * статуса туда и обратно — как событие без смены статуса.
+     * </p>
+     *
+     * @param events события в порядке их записи.
+     * @return последние события задач в порядке их записи.
+     */
+    private Collection<TaskStatusDTO> coalesce(List<OutboxEvent> events) {
+        Map<Long, TaskStatusDTO> latest = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            // Удаление перед вставкой сохраняет порядок последних событий
+            TaskStatusDTO earlier = latest.remove(event.getTaskId());
+            TaskStatusDTO taskStatusDTO = toTaskStatusDTO(event);
+            if (earlier != null) {
+                taskStatusDTO.setPreviousStatus(earlier.getPreviousStatus());
+                taskStatusDTO.setOccurredAt(earlier.getOccurredAt());
+            }
+            latest.put(event.getTaskId(), taskStatusDTO);
+        }
+        return latest.values();
+    }
+
+    private void updateOldestEventAge() {
+        try {
+            long age = outboxEventRepository.findFirstByOrderByCreatedAtAscIdAsc()
+                    .map(event -> Duration.between(event.getCreatedAt(), Instant.now()).toMillis())
+                    .orElse(0L);
+            oldestEventAgeMs.set(age);
+        } catch (Exception e) {
+            logger.warn("Failed to read outbox lag: {}", e.getMessage());
+        }
+    }
+
+    private TaskStatusDTO toTaskStatusDTO(OutboxEvent event) {
+        return new TaskStatusDTO(event.getId(), event.getTaskId(), event.getStatus(), event.getPreviousStatus(),
+                event.getDescription(), event.getCreatedAt().toEpochMilli(), event.getUserId());
+    }
+}
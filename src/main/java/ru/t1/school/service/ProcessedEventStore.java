@@ -0,0 +1,163 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.t1.school.repository.ProcessedEventRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хранилище идентификаторов событий, уведомления о которых уже отправлены.
+ * <p>
+ * Источником истины служит таблица {@code processed_events}, общая для всех экземпляров приложения.
+ * Перед ней стоит LRU последних событий, обработанных этим экземпляром: событие из LRU заведомо
+ * обработано, и база не запрашивается. Все остальные события пачки проверяются по таблице одним
+ * запросом, потому что после перебалансировки повторно доставляются события, которые обработал
+ * другой экземпляр, и локальное состояние о них ничего не знает. Занимаемая LRU память публикуется
+ * метрикой {@code notification.dedupe.memory}.
+ * </p>
+ * <p>
+ * Повторы распознаются в течение срока хранения записей в таблице.
+ * </p>
+ */
+@Component
+public class ProcessedEventStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedEventStore.class);
+
+    /**
+     * Оценка размера одной записи LRU в куче: узел LinkedHashMap, ключ Long и ячейка хеш-таблицы.
+     */
+    private static final int LRU_ENTRY_BYTES = 80;
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final Duration retention;
+
+    private final Map<Long, Boolean> recent;
+
+    private final Counter duplicatesCounter;
+    private final Counter lookupsCounter;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param processedEventRepository репозиторий обработанных событий.
+     * @param meterRegistry            реестр метрик.
+     * @param retention                срок хранения записей об обработанных событиях.
+     * @param lruSize                  количество последних событий, хранимых в LRU.
+     */
+    @Autowired
+    public ProcessedEventStore(ProcessedEventRepository processedEventRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${notification.dedupe.retention}") Duration retention,
+                               @Value("${notification.dedupe.lru-size}") int lruSize) {
+        this.processedEventRepository = processedEventRepository;
+        this.retention = retention;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > lruSize;
+            }
+        };
+
+        this.duplicatesCounter = Counter.builder("notification.dedupe.duplicates")
+                .description("Количество повторно доставленных событий, для которых уведомление не отправлялось")
+                .register(meterRegistry);
+        this.lookupsCounter = Counter.builder("notification.dedupe.db.lookups")
+                .description("Количество обращений к таблице processed_events при проверке событий")
+                .register(meterRegistry);
+        Gauge.builder("notification.dedupe.memory", this, ProcessedEventStore::memoryBytes)
+                .description("Оценка памяти, занимаемой LRU обработанных событий")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает события из переданного набора, уведомления о которых уже отправлены.
+     * <p>
+     * Если база недоступна, события, которых нет в LRU, считаются новыми:
+     * лучше отправить повторное уведомление, чем потерять его.
+     * </p>
+     *
+     * @param eventIds идентификаторы событий.
+     * @return идентификаторы обработанных событий.
+     */
+    public Set<Long> findProcessed(Collection<Long> eventIds) {
+        Set<Long> processed = new HashSet<>();
+        List<Long> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (Long eventId : eventIds) {
+                if (recent.get(eventId) != null) {
+                    processed.add(eventId);
+                } else {
+                    candidates.add(eventId);
+                }
+            }
+        }
+        if (!candidates.isEmpty()) {
+            lookupsCounter.increment();
+            try {
+                processed.addAll(processedEventRepository.findExistingIds(candidates));
+            } catch (Exception e) {
+                logger.warn("Failed to check {} events against processed events, treating them as new: {}",
+                        candidates.size(), e.getMessage());
+            }
+        }
+        duplicatesCounter.increment(processed.size());
+        return processed;
+    }
+
+    /**
+     * Запоминает события, уведомления о которых отправлены.
+     *
+     * @param eventIds идентификаторы событий.
+     */
+    public void markProcessed(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Long eventId : eventIds) {
+                recent.put(eventId, Boolean.TRUE);
+            }
+        }
+        try {
+            processedEventRepository.insertIgnoringDuplicates(eventIds, Instant.now());
+        } catch (Exception e) {
+            // Уведомления уже отправлены; без записи в базе повтор распознается только по LRU этого экземпляра
+            logger.warn("Failed to record {} processed events: {}", eventIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Удаляет из таблицы записи старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${notification.dedupe.cleanup-interval-ms}")
+    public void cleanUp() {
+        try {
+            int deleted = processedEventRepository.deleteProcessedBefore(Instant.now().minus(retention));
+            logger.debug("Deleted {} expired processed events", deleted);
+        } catch (Exception e) {
+            logger.warn("Failed to delete expired processed events: {}", e.getMessage());
+        }
+    }
+
+    private synchronized double memoryBytes() {
+        return (double) recent.size() * LRU_ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,259 @@
+package ru.t1.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPageDTO;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.entity.OutboxEvent;
+import ru.t1.school.entity.Task;
+import ru.t1.school.exception.TaskNotFoundException;
+import ru.t1.school.exception.TaskServiceException;
+import ru.t1.school.exception.TaskStatusTransitionException;
+import ru.t1.school.exception.TaskVersionMismatchException;
+import ru.t1.school.mapper.TaskMapper;
+import ru.t1.school.repository.ReactiveTaskRepository;
+
+import java.time.Instant;
+
+/**
+ * Реактивный сервис для управления задачами (профиль {@code reactive}).
+ * <p>
+ * Повторяет поведение {@link TaskService} без блокирующих вызовов: задачи хранятся через R2DBC,
+ * а события о смене статуса записываются в outbox в той же реактивной транзакции и публикуются
+ * в Kafka общим процессом {@link OutboxRelay}. Локальный кэш задач в этом варианте не используется.
+ * </p>
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTaskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTaskService.class);
+
+    private final ReactiveTaskRepository taskRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final TaskMapper taskMapper = TaskMapper.INSTANCE;
+    private final int defaultPageLimit;
+    private final int maxPageLimit;
+    private final int exportFetchSize;
+
+    @Autowired
+    public ReactiveTaskService(ReactiveTaskRepository taskRepository,
+                               TransactionalOperator reactiveTransactionalOperator,
+                               @Value("${task.pagination.default-limit}") int defaultPageLimit,
+                               @Value("${task.pagination.max-limit}") int maxPageLimit,
+                               @Value("${task.export.fetch-size}") int exportFetchSize) {
+        this.taskRepository = taskRepository;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * Создает задачу; статус проверяется так же, как в {@link TaskService#createTask(TaskDTO)}.
+     *
+     * @param taskDTO задача для создания
+     * @return созданная задача
+     */
+    public Mono<TaskDTO> createTask(TaskDTO taskDTO) {
+        return Mono.fromSupplier(() -> {
+                    Task task = taskMapper.toEntity(taskDTO);
+                    task.setId(null);
+                    task.setStatus(TaskUpdates.initialStatus(task.getStatus()));
+                    return task;
+                })
+                .flatMap(task -> taskRepository.insert(task)
+                        .map(id -> {
+                            task.setId(id);
+                            task.setVersion(0L);
+                            logger.info("Task created with ID: {}", id);
+                            return taskMapper.toDTO(task);
+                        }))
+                .onErrorMap(e -> wrap("Failed to create task", e));
+    }
+
+    /**
+     * Возвращает задачу по ID.
+     *
+     * @param id ID задачи
+     * @return задача или ошибка {@link TaskNotFoundException}
+     */
+    public Mono<TaskDTO> getTaskById(Long id) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task not found with id " + id)))
+                .map(taskMapper::toDTO)
+                .onErrorMap(e -> wrap("Failed to retrieve task", e));
+    }
+
+    /**
+     * Возвращает текущую версию задачи для проверки условного запроса.
+     *
+     * @param id ID задачи
+     * @return версия задачи или ошибка {@link TaskNotFoundException}
+     */
+    public Mono<Long> getTaskVersion(Long id) {
+        return taskRepository.findVersionById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task not found with id " + id)))
+                .onErrorMap(e -> wrap("Failed to retrieve task version", e));
+    }
+
+    /**
+     * Заменяет заголовок, описание и пользователя задачи и в той же транзакции записывает событие
+     * об изменении в outbox.
+     * <p>
+     * Неизмененная задача не сохраняется, а ожидаемая версия проверяется так же,
+     * как в {@link TaskService#updateTask(Long, TaskDTO, Long)}.
+     * </p>
+     *
+     * @param id              ID задачи
+     * @param taskDTO         новые данные задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     * @return обновленная задача
+     */
+    public Mono<TaskDTO> updateTask(Long id, TaskDTO taskDTO, Long expectedVersion) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task not found with id " + id)))
+                .flatMap(task -> {
+                    checkVersion(id, task.getVersion(), expectedVersion);
+                    return TaskUpdates.replace(task, taskDTO) ? save(task, task.getStatus()) : Mono.just(taskMapper.toDTO(task));
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> versionConflict(id, expectedVersion, e))
+                .onErrorMap(e -> wrap("Failed to update task", e));
+    }
+
+    /**
+     * Частично обновляет задачу по правилам JSON Merge Patch и в той же транзакции записывает событие
+     * об изменении в outbox; повторяет {@link TaskService#patchTask(Long, TaskPatchDTO, Long)}.
+     *
+     * @param id              ID задачи
+     * @param patch           изменяемые поля задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     * @return задача после обновления
+     */
+    public Mono<TaskDTO> patchTask(Long id, TaskPatchDTO patch, Long expectedVersion) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task not found with id " + id)))
+                .flatMap(task -> {
+                    checkVersion(id, task.getVersion(), expectedVersion);
+                    String previousStatus = task.getStatus();
+                    return TaskUpdates.patch(task, patch) ? save(task, previousStatus) : Mono.just(taskMapper.toDTO(task));
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> versionConflict(id, expectedVersion, e))
+                .onErrorMap(e -> wrap("Failed to patch task", e));
+    }
+
+    /**
+     * Удаляет задачу и в той же транзакции записывает событие об удалении в outbox.
+     *
+     * @param id              ID задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     * @return сигнал завершения или ошибка {@link TaskNotFoundException}
+     */
+    public Mono<Void> deleteTask(Long id, Long expectedVersion) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task not found with id " + id)))
+                .flatMap(task -> {
+                    checkVersion(id, task.getVersion(), expectedVersion);
+                    return taskRepository.deleteByIdAndVersion(id, task.getVersion())
+                            .flatMap(deleted -> requireUpdated(id, deleted))
+                            .then(taskRepository.insertOutboxEvent(new OutboxEvent(null, id, "DELETED", null, "Task deleted",
+                                    Instant.now(), null, task.getUserId())));
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> versionConflict(id, expectedVersion, e))
+                .onErrorMap(e -> wrap("Failed to delete task", e));
+    }
+
+    /**
+     * Возвращает страницу задач с ID больше {@code after}, удовлетворяющих заданным фильтрам,
+     * как {@link TaskService#getTasks(Long, String, String, Long, Integer)}.
+     *
+     * @param userId ID пользователя или {@code null}, чтобы не фильтровать по пользователю
+     * @param status статус задачи или {@code null}, чтобы не фильтровать по статусу
+     * @param text   слова, которые должны встречаться в заголовке или описании, или {@code null}
+     * @param after  ID последней задачи предыдущей страницы или {@code null} для первой страницы
+     * @param limit  размер страницы или {@code null} для значения по умолчанию
+     * @return страница задач с курсором на следующую страницу
+     */
+    public Mono<TaskPageDTO> getTasks(Long userId, String status, String text, Long after, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        String words = text == null || text.isBlank() ? null : text;
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        return taskRepository.findPage(userId, status, words, after == null ? 0L : after, pageSize + 1)
+                .map(taskMapper::toDTO)
+                .collectList()
+                .map(tasks -> {
+                    boolean hasNext = tasks.size() > pageSize;
+                    var items = hasNext ? tasks.subList(0, pageSize) : tasks;
+                    return new TaskPageDTO(items, hasNext ? items.get(items.size() - 1).getId() : null);
+                })
+                .onErrorMap(e -> wrap("Failed to retrieve tasks", e));
+    }
+
+    /**
+     * Возвращает все задачи в порядке ID.
+     * <p>
+     * Строки читаются из базы порциями по мере того, как клиент принимает ответ, поэтому
+     * медленный клиент не приводит к накоплению задач в памяти.
+     * </p>
+     *
+     * @return поток задач
+     */
+    public Flux<TaskDTO> streamAllTasks() {
+        return taskRepository.streamAll(exportFetchSize)
+                .map(taskMapper::toDTO)
+                .onErrorMap(e -> wrap("Failed to export tasks", e));
+    }
+
+    private Mono<TaskDTO> save(Task task, String previousStatus) {
+        return taskRepository.update(task)
+                .flatMap(updated -> requireUpdated(task.getId(), updated))
+                // Запись события в outbox для последующей отправки в Kafka
+                .then(taskRepository.insertOutboxEvent(TaskUpdates.updateEvent(task, previousStatus, Instant.now(), null)))
+                .then(Mono.fromSupplier(() -> {
+                    task.setVersion(task.getVersion() + 1);
+                    return taskMapper.toDTO(task);
+                }));
+    }
+
+    private void checkVersion(Long id, Long version, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(version)) {
+            throw new TaskVersionMismatchException("Task " + id + " has version " + version
+                    + ", expected " + expectedVersion);
+        }
+    }
+
+    private static RuntimeException versionConflict(Long id, Long expectedVersion, OptimisticLockingFailureException e) {
+        // С If-Match параллельное изменение означает невыполненное условие запроса (412), как в TaskService
+        return expectedVersion == null ? e : new TaskVersionMismatchException("Task " + id
+                + " was modified concurrently, expected version " + expectedVersion, e);
+    }
+
+    private Mono<Void> requireUpdated(Long id, long rows) {
+        // Строку изменили или удалили после чтения версии
+        return rows == 0
+                ? Mono.error(new OptimisticLockingFailureException("Task " + id + " was modified concurrently"))
+                : Mono.empty();
+    }
+
+    private Throwable wrap(String message, Throwable e) {
+        if (e instanceof TaskNotFoundException || e instanceof TaskServiceException
+                || e instanceof TaskVersionMismatchException || e instanceof OptimisticLockingFailureException
+                || e instanceof TaskStatusTransitionException) {
+            return e;
+        }
+        logger.error(message, e);
+        return new TaskServiceException(message, e);
+    }
+}
@@ -0,0 +1,127 @@
+package ru.t1.school.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Пул повторно используемых SMTP-соединений.
+ * <p>
+ * Вместо установки нового SMTP-сеанса на каждое письмо соединения остаются открытыми между
+ * отправками и возвращаются в пул. Количество одновременно открытых соединений ограничено,
+ * чтобы не превышать лимиты почтового провайдера. Параметры подключения берутся из
+ * {@link JavaMailSenderImpl}, настроенного через {@code spring.mail.*}.
+ * </p>
+ * <p>
+ * Пул создается при отправке первого письма, а не при запуске приложения.
+ * </p>
+ */
+@Lazy
+@Component
+public class SmtpTransportPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<Transport> idle;
+    private final Semaphore permits;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param mailSender отправитель почты, содержащий параметры SMTP-сервера.
+     * @param poolSize   максимальное количество одновременно открытых соединений.
+     */
+    @Autowired
+    public SmtpTransportPool(JavaMailSenderImpl mailSender, @Value("${notification.dispatch.pool-size}") int poolSize) {
+        this.mailSender = mailSender;
+        this.idle = new LinkedBlockingQueue<>(poolSize);
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Возвращает сессию, для которой создаются письма.
+     *
+     * @return почтовая сессия.
+     */
+    public Session getSession() {
+        return mailSender.getSession();
+    }
+
+    /**
+     * Берет соединение из пула, при необходимости открывая новое.
+     * <p>
+     * Если свободных соединений нет и лимит исчерпан, вызывающий поток ожидает возврата соединения.
+     * </p>
+     *
+     * @return подключенное SMTP-соединение.
+     * @throws MessagingException   если подключиться к серверу не удалось.
+     * @throws InterruptedException если поток был прерван во время ожидания.
+     */
+    public Transport borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            Transport transport = idle.poll();
+            if (transport != null && transport.isConnected()) {
+                return transport;
+            }
+            closeQuietly(transport);
+            transport = getSession().getTransport(mailSender.getProtocol());
+            transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул.
+     *
+     * @param transport соединение, полученное через {@link #borrow()}.
+     * @param reusable  {@code false}, если соединение могло оказаться в неконсистентном состоянии и его нужно закрыть.
+     */
+    public void release(Transport transport, boolean reusable) {
+        try {
+            if (!reusable || !idle.offer(transport)) {
+                closeQuietly(transport);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Закрывает все свободные соединения при остановке приложения.
+     */
+    @PreDestroy
+    public void close() {
+        Transport transport;
+        while ((transport = idle.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP transport: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.t1.school.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Service;
+import ru.t1.school.config.CacheConfig;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.util.List;
+
+/**
+ * Сервис, удаляющий из локального кэша задачи, измененные другими экземплярами приложения.
+ * <p>
+ * Каждый экземпляр читает все разделы топика статусов задач без группы консьюмеров
+ * (см. {@link ru.t1.school.config.KafkaConfig#broadcastListenerContainerFactory}), поэтому получает
+ * все события, а не только часть разделов. Чтение начинается с последних сообщений: кэш пуст
+ * при старте, и более старые события для него не важны.
+ * </p>
+ */
+@Service
+public class TaskCacheInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskCacheInvalidationListener.class);
+
+    private final Cache taskCache;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param cacheManager менеджер кэшей.
+     */
+    @Autowired
+    public TaskCacheInvalidationListener(CacheManager cacheManager) {
+        this.taskCache = cacheManager.getCache(CacheConfig.TASKS_CACHE);
+    }
+
+    /**
+     * Удаляет из кэша задачи, упомянутые в пачке событий.
+     *
+     * @param records пачка событий из топика статусов задач.
+     */
+    @KafkaListener(containerFactory = "broadcastListenerContainerFactory", topicPartitions = @TopicPartition(
+            topic = "${kafka.topic.client}", partitions = "0-#{${kafka.topic.num-partitions} - 1}"))
+    public void invalidate(List<ConsumerRecord<String, TaskStatusDTO>> records) {
+        for (ConsumerRecord<String, TaskStatusDTO> record : records) {
+            TaskStatusDTO taskStatusDTO = record.value();
+            if (taskStatusDTO != null && taskStatusDTO.getTaskId() != null) {
+                taskCache.evict(taskStatusDTO.getTaskId());
+            }
+        }
+        logger.debug("Invalidated cache entries for {} task status events", records.size());
+    }
+}
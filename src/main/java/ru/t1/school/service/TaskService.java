@@ -1,21 +1,43 @@
 package ru.t1.school.service;
 
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+import ru.t1.school.config.CacheConfig;
+import ru.t1.school.datasource.ReplicaRoutingDataSource;
 import ru.t1.school.dto.TaskDTO;
-import ru.t1.school.dto.TaskStatusDTO;
+import ru.t1.school.dto.TaskPageDTO;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.entity.OutboxEvent;
 import ru.t1.school.entity.Task;
+import ru.t1.school.exception.InvalidTaskRequestException;
 import ru.t1.school.exception.TaskNotFoundException;
 import ru.t1.school.exception.TaskServiceException;
+import ru.t1.school.exception.TaskStatusTransitionException;
+import ru.t1.school.exception.TaskVersionMismatchException;
 import ru.t1.school.mapper.TaskMapper;
+import ru.t1.school.repository.OutboxEventRepository;
 import ru.t1.school.repository.TaskRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления задачами.
@@ -26,87 +48,503 @@ public class TaskService {
     private static final Logger logger = LoggerFactory.getLogger(TaskService.class);
 
     private final TaskRepository taskRepository;
-    private final KafkaTemplate<String, TaskStatusDTO> kafkaTemplate;
-    private final String taskStatusTopic;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TaskStatusTracing taskStatusTracing;
+    private final EntityManager entityManager;
+    private final int defaultPageLimit;
+    private final int maxPageLimit;
+    private final int exportFetchSize;
+    private final int bulkChunkSize;
+    private final Cache taskCache;
     private final TaskMapper taskMapper = TaskMapper.INSTANCE;
 
     @Autowired
-    public TaskService(TaskRepository taskRepository, KafkaTemplate<String, TaskStatusDTO> kafkaTemplate,
-                       @Value("${kafka.topic.client}") String taskStatusTopic) {
+    public TaskService(TaskRepository taskRepository, OutboxEventRepository outboxEventRepository,
+                       TaskStatusTracing taskStatusTracing, EntityManager entityManager,
+                       @Value("${task.pagination.default-limit}") int defaultPageLimit,
+                       @Value("${task.pagination.max-limit}") int maxPageLimit,
+                       @Value("${task.export.fetch-size}") int exportFetchSize,
+                       @Value("${task.bulk.chunk-size}") int bulkChunkSize,
+                       CacheManager cacheManager) {
         this.taskRepository = taskRepository;
-        this.kafkaTemplate = kafkaTemplate;
-        this.taskStatusTopic = taskStatusTopic;
+        this.outboxEventRepository = outboxEventRepository;
+        this.taskStatusTracing = taskStatusTracing;
+        this.entityManager = entityManager;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        this.exportFetchSize = exportFetchSize;
+        this.bulkChunkSize = bulkChunkSize;
+        this.taskCache = cacheManager.getCache(CacheConfig.TASKS_CACHE);
     }
 
+    /**
+     * Создает задачу.
+     * <p>
+     * Если статус не передан, задача создается в статусе {@code NEW}; неизвестный статус
+     * отклоняется с {@link TaskStatusTransitionException}.
+     * </p>
+     *
+     * @param taskDTO задача для создания
+     * @return созданная задача
+     */
     public TaskDTO createTask(TaskDTO taskDTO) {
         try {
             logger.info("Creating task with title: {}", taskDTO.getTitle());
             Task task = taskMapper.toEntity(taskDTO);
-            if (task.getStatus() == null) {
-                task.setStatus("NEW"); // Установка значения по умолчанию, если оно не передано
-            }
+            task.setStatus(TaskUpdates.initialStatus(task.getStatus()));
             Task createdTask = taskRepository.save(task);
             logger.info("Task created with ID: {}", createdTask.getId());
             return taskMapper.toDTO(createdTask);
+        } catch (TaskStatusTransitionException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to create task", e);
             throw new TaskServiceException("Failed to create task", e);
         }
     }
 
+    /**
+     * Возвращает задачу по ID.
+     * <p>
+     * Результат кэшируется локально; запись удаляется при изменении или удалении задачи
+     * на этом или другом экземпляре приложения (см. {@link TaskCacheInvalidationListener}).
+     * Как и остальные читающие транзакции, запрос выполняется на реплике, если реплики настроены
+     * (см. {@link ru.t1.school.config.DataSourceConfig}).
+     * </p>
+     * <p>
+     * Запросы клиента, недавно изменившего задачи (см. {@link ru.t1.school.datasource.ReadYourWritesFilter}), кэш обходят:
+     * после инвалидации в него может снова попасть строка, прочитанная другим запросом с отстающей
+     * реплики, и такой клиент не увидел бы собственное изменение. Их результат в кэш тоже не записывается.
+     * </p>
+     *
+     * @param id ID задачи
+     * @return задача
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.TASKS_CACHE, key = "#id",
+            condition = "!T(ru.t1.school.datasource.ReplicaRoutingDataSource).isPrimaryRequired()")
     public TaskDTO getTaskById(Long id) {
         try {
             Task task = taskRepository.findById(id)
                     .orElseThrow(() -> new TaskNotFoundException("Task not found with id " + id));
             return taskMapper.toDTO(task);
+        } catch (TaskNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to retrieve task with ID: {}", id, e);
             throw new TaskServiceException("Failed to retrieve task", e);
         }
     }
 
-    public TaskDTO updateTask(Long id, TaskDTO taskDTO) {
+    /**
+     * Возвращает текущую версию задачи для проверки условного запроса.
+     * <p>
+     * Версия берется из кэша задач, а при промахе — запросом только версии по первичному ключу,
+     * поэтому проверка {@code If-None-Match} не загружает и не сериализует задачу. Как и в
+     * {@link #getTaskById(Long)}, в окне read-your-writes кэш не используется.
+     * </p>
+     *
+     * @param id ID задачи
+     * @return версия задачи
+     */
+    @Transactional(readOnly = true)
+    public Long getTaskVersion(Long id) {
         try {
-            Task existingTask = taskRepository.findById(id)
+            TaskDTO cached = ReplicaRoutingDataSource.isPrimaryRequired() ? null : taskCache.get(id, TaskDTO.class);
+            if (cached != null) {
+                return cached.getVersion();
+            }
+            return taskRepository.findVersionById(id)
                     .orElseThrow(() -> new TaskNotFoundException("Task not found with id " + id));
-            existingTask.setTitle(taskDTO.getTitle());
-            existingTask.setDescription(taskDTO.getDescription());
-            existingTask.setUserId(taskDTO.getUserId());
-            existingTask.setStatus("UPDATE"); // Изменение статуса на UPDATE
-            Task updatedTask = taskRepository.save(existingTask);
-
-            // Отправка сообщения в Kafka
-            TaskStatusDTO taskStatusDTO = new TaskStatusDTO(id, "UPDATE", "Task updated with status 'UPDATE'");
-            kafkaTemplate.send(taskStatusTopic, taskStatusDTO);
+        } catch (TaskNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to retrieve version of task with ID: {}", id, e);
+            throw new TaskServiceException("Failed to retrieve task version", e);
+        }
+    }
 
-            return taskMapper.toDTO(updatedTask);
+    /**
+     * Заменяет заголовок, описание и пользователя задачи и в той же транзакции записывает событие
+     * об изменении в outbox. Статус задачи меняется только через {@link #patchTask(Long, TaskPatchDTO, Long)}.
+     * <p>
+     * Событие публикуется в Kafka асинхронно процессом {@link OutboxRelay}, поэтому запрос
+     * не ожидает брокера, а событие не теряется при сбое приложения. Если новые данные совпадают
+     * с текущими, задача не сохраняется, версия не увеличивается и событие не записывается.
+     * </p>
+     * <p>
+     * Если передана ожидаемая версия и она не совпадает с текущей, задача не изменяется
+     * и выбрасывается {@link TaskVersionMismatchException}. Изменение, параллельно зафиксированное
+     * другой транзакцией после чтения задачи, тоже приводит к {@link TaskVersionMismatchException},
+     * если версия передана (условие {@code If-Match} больше не выполняется), и к
+     * {@link OptimisticLockingFailureException}, если нет.
+     * </p>
+     *
+     * @param id              ID задачи
+     * @param taskDTO         новые данные задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     * @return обновленная задача
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    public TaskDTO updateTask(Long id, TaskDTO taskDTO, Long expectedVersion) {
+        try {
+            Task existingTask = taskRepository.findById(id)
+                    .orElseThrow(() -> new TaskNotFoundException("Task not found with id " + id));
+            checkVersion(id, existingTask.getVersion(), expectedVersion);
+            if (!TaskUpdates.replace(existingTask, taskDTO)) {
+                logger.debug("Task with ID: {} is unchanged, skipping update", id);
+                return taskMapper.toDTO(existingTask);
+            }
+            return save(existingTask, existingTask.getStatus());
+        } catch (TaskNotFoundException e) {
+            throw e;
+        } catch (TaskVersionMismatchException | OptimisticLockingFailureException e) {
+            logger.warn("Version conflict while updating task with ID: {}: {}", id, e.getMessage());
+            throw versionConflict(id, expectedVersion, e);
         } catch (Exception e) {
             logger.error("Failed to update task with ID: {}", id, e);
             throw new TaskServiceException("Failed to update task", e);
         }
     }
 
-    public void deleteTask(Long id) {
+    /**
+     * Частично обновляет задачу по правилам JSON Merge Patch и в той же транзакции записывает событие
+     * об изменении в outbox.
+     * <p>
+     * Изменяются только переданные поля, значения которых отличаются от текущих; статус меняется
+     * только по разрешенным переходам {@link ru.t1.school.entity.TaskStatus}. Если ничего не изменилось,
+     * не выполняются ни UPDATE, ни запись события. Уведомление по событию отправляется, только если
+     * изменился статус. Ожидаемая версия проверяется так же, как в {@link #updateTask(Long, TaskDTO, Long)}.
+     * </p>
+     *
+     * @param id              ID задачи
+     * @param patch           изменяемые поля задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     * @return задача после обновления
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    public TaskDTO patchTask(Long id, TaskPatchDTO patch, Long expectedVersion) {
         try {
-            if (taskRepository.existsById(id)) {
-                taskRepository.deleteById(id);
-            } else {
-                throw new TaskNotFoundException("Task not found with id " + id);
+            Task existingTask = taskRepository.findById(id)
+                    .orElseThrow(() -> new TaskNotFoundException("Task not found with id " + id));
+            checkVersion(id, existingTask.getVersion(), expectedVersion);
+            String previousStatus = existingTask.getStatus();
+            if (!TaskUpdates.patch(existingTask, patch)) {
+                logger.debug("Task with ID: {} is unchanged, skipping patch", id);
+                return taskMapper.toDTO(existingTask);
             }
+            return save(existingTask, previousStatus);
+        } catch (TaskNotFoundException | TaskStatusTransitionException e) {
+            throw e;
+        } catch (TaskVersionMismatchException | OptimisticLockingFailureException e) {
+            logger.warn("Version conflict while patching task with ID: {}: {}", id, e.getMessage());
+            throw versionConflict(id, expectedVersion, e);
+        } catch (Exception e) {
+            logger.error("Failed to patch task with ID: {}", id, e);
+            throw new TaskServiceException("Failed to patch task", e);
+        }
+    }
+
+    /**
+     * Удаляет задачу и в той же транзакции записывает событие об удалении в outbox.
+     * <p>
+     * Событие нужно, в том числе, чтобы другие экземпляры приложения удалили задачу из своего кэша.
+     * Ожидаемая версия проверяется так же, как в {@link #updateTask(Long, TaskDTO, Long)}.
+     * </p>
+     *
+     * @param id              ID задачи
+     * @param expectedVersion версия задачи, которую видел клиент, или {@code null}, чтобы не проверять версию
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    public void deleteTask(Long id, Long expectedVersion) {
+        try {
+            Task task = taskRepository.findById(id)
+                    .orElseThrow(() -> new TaskNotFoundException("Task not found with id " + id));
+            checkVersion(id, task.getVersion(), expectedVersion);
+            taskRepository.delete(task);
+            // Удаление сбрасывается в базу сразу, чтобы конфликт версий обнаружился здесь, а не при фиксации транзакции
+            taskRepository.flush();
+            outboxEventRepository.save(new OutboxEvent(null, id, "DELETED", null, "Task deleted", Instant.now(),
+                    taskStatusTracing.currentTraceparent(), task.getUserId()));
+        } catch (TaskNotFoundException e) {
+            throw e;
+        } catch (TaskVersionMismatchException | OptimisticLockingFailureException e) {
+            logger.warn("Version conflict while deleting task with ID: {}: {}", id, e.getMessage());
+            throw versionConflict(id, expectedVersion, e);
         } catch (Exception e) {
             logger.error("Failed to delete task with ID: {}", id, e);
             throw new TaskServiceException("Failed to delete task", e);
         }
     }
 
-    public List<TaskDTO> getAllTasks() {
+    /**
+     * Создает задачи пачками.
+     * <p>
+     * Задачи записываются порциями по {@code task.bulk.chunk-size}: каждая порция отправляется
+     * в базу JDBC-батчами, после чего контекст персистентности очищается. Статусы проверяются так же,
+     * как в {@link #createTask(TaskDTO)}: если хотя бы у одной задачи статус неизвестен, ни одна задача
+     * не создается.
+     * </p>
+     *
+     * @param taskDTOs задачи для создания
+     * @return созданные задачи в том же порядке
+     */
+    @Transactional
+    public List<TaskDTO> createTasks(List<TaskDTO> taskDTOs) {
+        try {
+            logger.info("Creating {} tasks", taskDTOs.size());
+            List<TaskDTO> created = new ArrayList<>(taskDTOs.size());
+            for (List<TaskDTO> chunk : chunks(taskDTOs)) {
+                List<Task> tasks = chunk.stream()
+                        .map(taskMapper::toEntity)
+                        .peek(task -> task.setStatus(TaskUpdates.initialStatus(task.getStatus())))
+                        .collect(Collectors.toList());
+                taskRepository.saveAll(tasks);
+                flushAndClear();
+                tasks.forEach(task -> created.add(taskMapper.toDTO(task)));
+            }
+            return created;
+        } catch (TaskStatusTransitionException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to create tasks", e);
+            throw new TaskServiceException("Failed to create tasks", e);
+        }
+    }
+
+    /**
+     * Обновляет задачи пачками и записывает события об изменении в outbox.
+     * <p>
+     * Операция атомарна: если хотя бы одна задача не найдена, ни одна задача не будет обновлена
+     * и выбрасывается {@link TaskNotFoundException}; задача без ID отклоняется
+     * с {@link InvalidTaskRequestException} до обращения к базе.
+     * Поля задач заменяются так же, как в {@link #updateTask(Long, TaskDTO, Long)}; для задач,
+     * данные которых не изменились, события не записываются. Версия, переданная в задаче, проверяется
+     * как ожидаемая версия в {@link #updateTask(Long, TaskDTO, Long)}: при несовпадении или параллельном
+     * изменении такой задачи ни одна задача не обновляется и выбрасывается {@link TaskVersionMismatchException},
+     * а конфликт по задаче без версии приводит к {@link OptimisticLockingFailureException}. События всей пачки публикуются
+     * {@link OutboxRelay} общими пачками отправки в Kafka.
+     * </p>
+     *
+     * @param taskDTOs задачи с заполненным ID и новыми данными
+     * @return обновленные задачи в том же порядке
+     */
+    @Transactional
+    public List<TaskDTO> updateTasks(List<TaskDTO> taskDTOs) {
         try {
-            return taskRepository.findAll().stream()
+            logger.info("Updating {} tasks", taskDTOs.size());
+            if (taskDTOs.stream().anyMatch(taskDTO -> taskDTO.getId() == null)) {
+                throw new InvalidTaskRequestException("Task ID is mandatory for bulk update");
+            }
+            List<TaskDTO> updated = new ArrayList<>(taskDTOs.size());
+            Instant now = Instant.now();
+            String traceparent = taskStatusTracing.currentTraceparent();
+            for (List<TaskDTO> chunk : chunks(taskDTOs)) {
+                Map<Long, Task> existing = taskRepository.findAllById(chunk.stream().map(TaskDTO::getId).toList()).stream()
+                        .collect(Collectors.toMap(Task::getId, task -> task));
+                List<OutboxEvent> events = new ArrayList<>(chunk.size());
+                for (TaskDTO taskDTO : chunk) {
+                    Task task = existing.get(taskDTO.getId());
+                    if (task == null) {
+                        throw new TaskNotFoundException("Task not found with id " + taskDTO.getId());
+                    }
+                    checkVersion(task.getId(), task.getVersion(), taskDTO.getVersion());
+                    if (TaskUpdates.replace(task, taskDTO)) {
+                        events.add(TaskUpdates.updateEvent(task, task.getStatus(), now, traceparent));
+                    }
+                }
+                outboxEventRepository.saveAll(events);
+                flushAndClear();
+                // Задачи преобразуются после сброса в базу, чтобы ответ содержал новые версии
+                chunk.forEach(taskDTO -> updated.add(taskMapper.toDTO(existing.get(taskDTO.getId()))));
+                chunk.forEach(taskDTO -> taskCache.evict(taskDTO.getId()));
+            }
+            return updated;
+        } catch (InvalidTaskRequestException | TaskNotFoundException | TaskVersionMismatchException e) {
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Version conflict while updating {} tasks: {}", taskDTOs.size(), e.getMessage());
+            throw bulkVersionConflict(taskDTOs, e);
+        } catch (Exception e) {
+            logger.error("Failed to update tasks", e);
+            throw new TaskServiceException("Failed to update tasks", e);
+        }
+    }
+
+    /**
+     * Удаляет задачи пачками и записывает события об удалении в outbox.
+     * <p>
+     * Отсутствующие ID пропускаются.
+     * </p>
+     *
+     * @param ids ID задач для удаления
+     * @return количество удаленных задач
+     */
+    @Transactional
+    public int deleteTasks(List<Long> ids) {
+        try {
+            logger.info("Deleting {} tasks", ids.size());
+            int deleted = 0;
+            Instant now = Instant.now();
+            String traceparent = taskStatusTracing.currentTraceparent();
+            for (List<Long> chunk : chunks(ids)) {
+                List<TaskRepository.TaskOwner> owners = taskRepository.findOwners(chunk);
+                if (owners.isEmpty()) {
+                    continue;
+                }
+                List<Long> existingIds = owners.stream().map(TaskRepository.TaskOwner::getId).toList();
+                taskRepository.deleteAllByIdInBatch(existingIds);
+                outboxEventRepository.saveAll(owners.stream()
+                        .map(owner -> new OutboxEvent(null, owner.getId(), "DELETED", null, "Task deleted", now, traceparent,
+                                owner.getUserId()))
+                        .toList());
+                flushAndClear();
+                existingIds.forEach(taskCache::evict);
+                deleted += existingIds.size();
+            }
+            return deleted;
+        } catch (Exception e) {
+            logger.error("Failed to delete tasks", e);
+            throw new TaskServiceException("Failed to delete tasks", e);
+        }
+    }
+
+    /**
+     * Возвращает страницу задач с ID больше {@code after}, удовлетворяющих заданным фильтрам.
+     * <p>
+     * Используется keyset-пагинация по первичному ключу, поэтому стоимость запроса
+     * не зависит от номера страницы и размера таблицы. Фильтры по пользователю и статусу
+     * обслуживаются составными индексами, заканчивающимися на {@code id}, а текстовый поиск —
+     * полнотекстовым индексом по заголовку и описанию.
+     * </p>
+     *
+     * @param userId ID пользователя или {@code null}, чтобы не фильтровать по пользователю
+     * @param status статус задачи или {@code null}, чтобы не фильтровать по статусу
+     * @param text   слова, которые должны встречаться в заголовке или описании, или {@code null}
+     * @param after  ID последней задачи предыдущей страницы или {@code null} для первой страницы
+     * @param limit  размер страницы или {@code null} для значения по умолчанию
+     * @return страница задач с курсором на следующую страницу
+     */
+    @Transactional(readOnly = true)
+    public TaskPageDTO getTasks(Long userId, String status, String text, Long after, Integer limit) {
+        try {
+            int pageSize = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+            long cursor = after == null ? 0L : after;
+            // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+            List<Task> tasks = findPage(userId, status, text, cursor, pageSize + 1);
+            boolean hasNext = tasks.size() > pageSize;
+            List<TaskDTO> items = tasks.stream()
+                    .limit(pageSize)
                     .map(taskMapper::toDTO)
                     .collect(Collectors.toList());
+            Long next = hasNext ? items.get(items.size() - 1).getId() : null;
+            return new TaskPageDTO(items, next);
         } catch (Exception e) {
-            logger.error("Failed to retrieve tasks", e);
+            logger.error("Failed to retrieve tasks after ID: {}", after, e);
             throw new TaskServiceException("Failed to retrieve tasks", e);
         }
     }
+
+    private List<Task> findPage(Long userId, String status, String text, long after, int limit) {
+        if (text != null && !text.isBlank()) {
+            return taskRepository.searchByText(text, userId, status, after, limit);
+        }
+        if (userId != null && status != null) {
+            return taskRepository.findByUserIdAndStatusAndIdGreaterThanOrderByIdAsc(userId, status, after, Limit.of(limit));
+        }
+        if (userId != null) {
+            return taskRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, after, Limit.of(limit));
+        }
+        if (status != null) {
+            return taskRepository.findByStatusAndIdGreaterThanOrderByIdAsc(status, after, Limit.of(limit));
+        }
+        return taskRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+    }
+
+    /**
+     * Последовательно передает все задачи получателю, читая их из базы через курсор.
+     * <p>
+     * Каждая задача отсоединяется от контекста персистентности сразу после обработки,
+     * поэтому потребление памяти не зависит от количества задач в таблице.
+     * </p>
+     *
+     * @param consumer получатель задач
+     */
+    @Transactional(readOnly = true)
+    public void streamAllTasks(Consumer<TaskDTO> consumer) {
+        try (Stream<Task> tasks = taskRepository.streamAll(exportFetchSize)) {
+            tasks.forEach(task -> {
+                consumer.accept(taskMapper.toDTO(task));
+                entityManager.detach(task);
+            });
+        } catch (Exception e) {
+            logger.error("Failed to stream tasks", e);
+            throw new TaskServiceException("Failed to stream tasks", e);
+        }
+    }
+
+    private TaskDTO save(Task task, String previousStatus) {
+        // Версия увеличивается при сбросе изменений в базу, поэтому ответ содержит уже новую версию
+        Task updatedTask = taskRepository.saveAndFlush(task);
+
+        // Запись события в outbox для последующей отправки в Kafka; контекст трассировки запроса
+        // сохраняется вместе с событием, чтобы публикация и отправка письма попали в ту же трассу
+        outboxEventRepository.save(TaskUpdates.updateEvent(updatedTask, previousStatus, Instant.now(),
+                taskStatusTracing.currentTraceparent()));
+
+        return taskMapper.toDTO(updatedTask);
+    }
+
+    private void checkVersion(Long id, Long version, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(version)) {
+            throw new TaskVersionMismatchException("Task " + id + " has version " + version
+                    + ", expected " + expectedVersion);
+        }
+    }
+
+    /**
+     * Возвращает исключение для конфликта версий: если клиент передал ожидаемую версию ({@code If-Match}),
+     * параллельное изменение означает, что его условие не выполняется, и запрос завершается {@code 412},
+     * иначе — {@code 409}.
+     */
+    private static RuntimeException bulkVersionConflict(List<TaskDTO> taskDTOs, OptimisticLockingFailureException e) {
+        // Hibernate сообщает ID задачи, на которой обнаружен конфликт; если его нет, условие считается
+        // нарушенным, если версия передана хотя бы для одной задачи
+        Object id = e instanceof ObjectOptimisticLockingFailureException failure ? failure.getIdentifier() : null;
+        Long expectedVersion = taskDTOs.stream()
+                .filter(taskDTO -> id == null || id.equals(taskDTO.getId()))
+                .map(TaskDTO::getVersion)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (id instanceof Long taskId) {
+            return versionConflict(taskId, expectedVersion, e);
+        }
+        return expectedVersion == null ? e
+                : new TaskVersionMismatchException("Tasks were modified concurrently during bulk update", e);
+    }
+
+    private static RuntimeException versionConflict(Long id, Long expectedVersion, RuntimeException e) {
+        if (expectedVersion == null || e instanceof TaskVersionMismatchException) {
+            return e;
+        }
+        return new TaskVersionMismatchException("Task " + id + " was modified concurrently, expected version "
+                + expectedVersion, e);
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += bulkChunkSize) {
+            chunks.add(items.subList(from, Math.min(from + bulkChunkSize, items.size())));
+        }
+        return chunks;
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
 }
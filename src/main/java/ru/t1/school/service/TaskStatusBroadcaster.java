@@ -0,0 +1,387 @@
+package ru.t1.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.t1.school.dto.TaskStatusDTO;
+import ru.t1.school.exception.TaskStreamLimitException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка событий об изменении статусов задач клиентам, подключенным к {@code GET /tasks/stream}
+ * (Server-Sent Events).
+ * <p>
+ * Каждый экземпляр приложения читает все разделы топика статусов без группы консьюмеров
+ * (см. {@link ru.t1.school.config.KafkaConfig#broadcastListenerContainerFactory}) и рассылает события
+ * своим соединениям: соединение получает события задач одного пользователя или, если пользователь не указан,
+ * всех задач. События, в которых статус не изменился, не рассылаются. JSON события формируется один раз
+ * и используется для всех соединений.
+ * </p>
+ * <p>
+ * У каждого соединения своя ограниченная очередь. Поток консьюмера только добавляет в нее события,
+ * а записывают их в соединения потоки пула {@code taskStreamExecutor}. Если клиент не успевает читать
+ * и очередь переполнилась, соединение закрывается (метрика {@code task.stream.evictions}), и клиент
+ * переподключается с заголовком {@code Last-Event-ID}.
+ * </p>
+ * <p>
+ * Последние события хранятся в кольцевом буфере. При переподключении события, полученные экземпляром после
+ * {@code Last-Event-ID}, отправляются повторно. Если этого события в буфере уже нет или пропущенных событий
+ * больше, чем помещается в очередь, клиенту отправляется событие {@code reset}: состояние задач нужно
+ * перечитать через {@code GET /tasks}. Буфер у каждого экземпляра свой, а события разных разделов топика
+ * могут прийти на экземпляры в разном порядке, поэтому при переподключении к другому экземпляру события
+ * рядом с {@code Last-Event-ID} могут повториться или потеряться.
+ * </p>
+ */
+@Service
+@Profile("!reactive")
+public class TaskStatusBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusBroadcaster.class);
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> RESET = SseEmitter.event().name("reset").data("").build();
+
+    private final TaskExecutor streamExecutor;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int historySize;
+    private final int maxConnections;
+    private final Duration timeout;
+    private final Duration reconnectDelay;
+    private final Set<ResponseBodyEmitter.DataWithMediaType> connected;
+
+    private final ArrayDeque<StreamEvent> history;
+    private final Map<Long, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allSubscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Counter sentCounter;
+    private final Counter evictionsCounter;
+    private final Counter rejectedCounter;
+    private final Counter replayedCounter;
+    private final Counter resetCounter;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param streamExecutor пул потоков, записывающих события в соединения.
+     * @param objectMapper   сериализатор событий в JSON.
+     * @param meterRegistry  реестр метрик.
+     * @param bufferSize     количество событий, ожидающих записи в одно соединение, при превышении которого
+     *                       соединение закрывается.
+     * @param historySize    количество последних событий, доступных для повторной отправки.
+     * @param maxConnections максимальное количество одновременно открытых соединений.
+     * @param timeout        время, после которого соединение закрывается и клиент переподключается.
+     * @param reconnectDelay пауза перед переподключением, передаваемая клиенту.
+     */
+    @Autowired
+    public TaskStatusBroadcaster(@Qualifier("taskStreamExecutor") TaskExecutor streamExecutor,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${task.stream.buffer-size}") int bufferSize,
+                                 @Value("${task.stream.history-size}") int historySize,
+                                 @Value("${task.stream.max-connections}") int maxConnections,
+                                 @Value("${task.stream.timeout}") Duration timeout,
+                                 @Value("${task.stream.reconnect-delay}") Duration reconnectDelay) {
+        this.streamExecutor = streamExecutor;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.maxConnections = maxConnections;
+        this.timeout = timeout;
+        this.reconnectDelay = reconnectDelay;
+        this.connected = SseEmitter.event().reconnectTime(reconnectDelay.toMillis()).comment("connected").build();
+        this.history = new ArrayDeque<>(historySize);
+
+        Gauge.builder("task.stream.connections", connections, AtomicInteger::get)
+                .description("Количество открытых потоков событий GET /tasks/stream")
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("task.stream.events.sent")
+                .description("Количество событий, записанных в потоки событий")
+                .register(meterRegistry);
+        this.evictionsCounter = Counter.builder("task.stream.evictions")
+                .description("Количество потоков событий, закрытых из-за переполнения очереди медленного клиента")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("task.stream.rejected")
+                .description("Количество отклоненных подключений сверх task.stream.max-connections")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("task.stream.resumes")
+                .description("Количество переподключений с Last-Event-ID")
+                .tag("result", "replayed")
+                .register(meterRegistry);
+        this.resetCounter = Counter.builder("task.stream.resumes")
+                .description("Количество переподключений с Last-Event-ID")
+                .tag("result", "reset")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Открывает поток событий.
+     *
+     * @param userId      ID пользователя, события задач которого нужно получать, или {@code null} для всех задач.
+     * @param lastEventId ID последнего полученного клиентом события или {@code null} при первом подключении.
+     * @return поток событий.
+     * @throws TaskStreamLimitException если открыто максимальное количество потоков.
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejectedCounter.increment();
+            throw new TaskStreamLimitException("Too many open task streams", reconnectDelay);
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(subscriber::unregister);
+        emitter.onTimeout(subscriber::unregister);
+        emitter.onError(e -> subscriber.unregister());
+        subscriber.queue.offer(connected);
+        synchronized (history) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            if (!subscriber.closed.get()) {
+                if (userId == null) {
+                    allSubscribers.add(subscriber);
+                } else {
+                    userSubscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+                }
+            }
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    /**
+     * Рассылает пачку событий из топика статусов задач открытым потокам.
+     * <p>
+     * Чтение начинается с последних сообщений: события, полученные до запуска экземпляра,
+     * не нужны ни подключенным клиентам, ни кольцевому буферу.
+     * </p>
+     *
+     * @param records пачка событий из топика статусов задач.
+     */
+    @KafkaListener(containerFactory = "broadcastListenerContainerFactory", topicPartitions = @TopicPartition(
+            topic = "${kafka.topic.client}", partitions = "0-#{${kafka.topic.num-partitions} - 1}"))
+    public void broadcast(List<ConsumerRecord<String, TaskStatusDTO>> records) {
+        List<StreamEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, TaskStatusDTO> record : records) {
+            TaskStatusDTO taskStatusDTO = record.value();
+            if (taskStatusDTO == null || taskStatusDTO.getEventId() == null
+                    || Objects.equals(taskStatusDTO.getStatus(), taskStatusDTO.getPreviousStatus())) {
+                continue;
+            }
+            try {
+                events.add(new StreamEvent(taskStatusDTO.getEventId(), taskStatusDTO.getUserId(), SseEmitter.event()
+                        .id(taskStatusDTO.getEventId().toString())
+                        .name("status")
+                        .data(objectMapper.writeValueAsString(taskStatusDTO), MediaType.APPLICATION_JSON)
+                        .build()));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to serialize task status event {}: {}", taskStatusDTO.getEventId(), e.getMessage());
+            }
+        }
+        synchronized (history) {
+            for (StreamEvent event : events) {
+                if (history.size() == historySize) {
+                    history.removeFirst();
+                }
+                history.addLast(event);
+                allSubscribers.forEach(subscriber -> subscriber.offer(event.frame));
+                Set<Subscriber> subscribers = event.userId == null ? null : userSubscribers.get(event.userId);
+                if (subscribers != null) {
+                    subscribers.forEach(subscriber -> subscriber.offer(event.frame));
+                }
+            }
+        }
+    }
+
+    /**
+     * Отправляет в открытые потоки комментарий, чтобы прокси не закрывали простаивающие соединения,
+     * а отключившиеся клиенты обнаруживались без ожидания следующего события.
+     */
+    @Scheduled(fixedDelayString = "${task.stream.heartbeat-interval-ms}")
+    public void heartbeat() {
+        allSubscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    /**
+     * Закрывает открытые потоки при остановке приложения; клиенты переподключаются к другим экземплярам.
+     */
+    @PreDestroy
+    public void close() {
+        allSubscribers.forEach(Subscriber::close);
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId) {
+        List<Set<ResponseBodyEmitter.DataWithMediaType>> missed = new ArrayList<>();
+        boolean found = false;
+        for (StreamEvent event : history) {
+            if (found) {
+                if (subscriber.userId == null || subscriber.userId.equals(event.userId)) {
+                    missed.add(event.frame);
+                }
+            } else if (event.eventId == lastEventId) {
+                found = true;
+            }
+        }
+        if (found && missed.size() <= bufferSize) {
+            missed.forEach(subscriber.queue::offer);
+            replayedCounter.increment();
+        } else {
+            subscriber.queue.offer(RESET);
+            resetCounter.increment();
+        }
+    }
+
+    /**
+     * Событие, готовое к записи в потоки.
+     */
+    private static final class StreamEvent {
+        private final long eventId;
+        private final Long userId;
+        private final Set<ResponseBodyEmitter.DataWithMediaType> frame;
+
+        private StreamEvent(long eventId, Long userId, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            this.eventId = eventId;
+            this.userId = userId;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Открытый поток событий с очередью еще не записанных событий.
+     * <p>
+     * Запись выполняется задачей пула, которая забирает из очереди все накопленные события;
+     * флаг {@code scheduled} гарантирует, что для одного потока одновременно работает не больше одной задачи.
+     * </p>
+     */
+    private final class Subscriber implements Runnable {
+        private final Long userId;
+        private final SseEmitter emitter;
+        // Дополнительное место для первого сообщения с паузой переподключения
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayBlockingQueue<>(bufferSize + 1);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean registered = new AtomicBoolean(true);
+        private volatile boolean completed;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (queue.offer(frame)) {
+                schedule();
+            } else if (closed.compareAndSet(false, true)) {
+                evictionsCounter.increment();
+                logger.debug("Closing task stream of user {}: client is not reading events", userId);
+                unregister();
+                schedule();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                unregister();
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    streamExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    closed.set(true);
+                    unregister();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                drain();
+                scheduled.set(false);
+            } while (!completed && (closed.get() || !queue.isEmpty()) && scheduled.compareAndSet(false, true));
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> frame;
+                while (!closed.get() && (frame = queue.poll()) != null) {
+                    emitter.send(frame);
+                    if (frame != HEARTBEAT && frame != connected) {
+                        sentCounter.increment();
+                    }
+                }
+                if (closed.get() && !completed) {
+                    completed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или поток уже завершен; соединение закроет контейнер сервлетов
+                completed = true;
+                closed.set(true);
+                unregister();
+            }
+        }
+
+        private void unregister() {
+            closed.set(true);
+            if (!registered.compareAndSet(true, false)) {
+                return;
+            }
+            synchronized (history) {
+                if (userId == null) {
+                    allSubscribers.remove(this);
+                } else {
+                    userSubscribers.computeIfPresent(userId, (id, subscribers) -> {
+                        subscribers.remove(this);
+                        return subscribers.isEmpty() ? null : subscribers;
+                    });
+                }
+            }
+            connections.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправляет события изменения статуса задач в Kafka.
+ * <p>
+ * Ключом сообщения служит ID задачи: все события одной задачи попадают в один раздел топика
+ * и читаются консьюмером в порядке отправки. Для каждой отправки измеряется время до подтверждения
+ * брокером ({@code kafka.producer.send.latency}) и считаются ошибки ({@code kafka.producer.send.failures}).
+ * </p>
+ * <p>
+ * Время отправки записывается в метку времени сообщения, а контекст трассировки — в заголовок
+ * {@link TaskStatusTracing#TRACEPARENT}: по ним консьюмер измеряет время ожидания в Kafka
+ * и продолжает трассу изменения задачи.
+ * </p>
+ */
+@Component
+public class TaskStatusPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusPublisher.class);
+
+    private final KafkaTemplate<String, TaskStatusDTO> kafkaTemplate;
+    private final TaskStatusTracing taskStatusTracing;
+    private final MeterRegistry meterRegistry;
+    private final String taskStatusTopic;
+    private final Timer sendTimer;
+    private final Map<String, Counter> failureCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param kafkaTemplate     шаблон Kafka для отправки событий.
+     * @param taskStatusTracing трассировка событий о смене статуса задач.
+     * @param meterRegistry     реестр метрик.
+     * @param taskStatusTopic   топик статусов задач.
+     */
+    @Autowired
+    public TaskStatusPublisher(KafkaTemplate<String, TaskStatusDTO> kafkaTemplate,
+                               TaskStatusTracing taskStatusTracing,
+                               MeterRegistry meterRegistry,
+                               @Value("${kafka.topic.client}") String taskStatusTopic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.taskStatusTracing = taskStatusTracing;
+        this.meterRegistry = meterRegistry;
+        this.taskStatusTopic = taskStatusTopic;
+        this.sendTimer = Timer.builder("kafka.producer.send.latency")
+                .description("Время от отправки события статуса задачи до подтверждения брокером")
+                .tag("topic", taskStatusTopic)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отправляет событие в топик статусов задач с ключом, равным ID задачи.
+     *
+     * @param taskStatusDTO событие изменения статуса задачи.
+     * @param traceparent   контекст трассировки изменения задачи или {@code null}.
+     * @return результат, который завершается после подтверждения брокером или с ошибкой отправки.
+     */
+    public CompletableFuture<SendResult<String, TaskStatusDTO>> publish(TaskStatusDTO taskStatusDTO, String traceparent) {
+        long start = System.nanoTime();
+        ProducerRecord<String, TaskStatusDTO> record = new ProducerRecord<>(taskStatusTopic, null,
+                System.currentTimeMillis(), String.valueOf(taskStatusDTO.getTaskId()), taskStatusDTO);
+        Span span = taskStatusTracing.startPublish(taskStatusDTO, traceparent, record.headers());
+        return kafkaTemplate.send(record)
+                .whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        span.end();
+                    } else {
+                        span.error(exception).end();
+                        failureCounter(exception).increment();
+                        logger.warn("Failed to send status event for task {}: {}", taskStatusDTO.getTaskId(), exception.getMessage());
+                    }
+                });
+    }
+
+    private Counter failureCounter(Throwable exception) {
+        Throwable cause = exception.getCause() != null ? exception.getCause() : exception;
+        String name = cause.getClass().getSimpleName();
+        return failureCounters.computeIfAbsent(name, key -> Counter.builder("kafka.producer.send.failures")
+                .description("Количество неудачных отправок событий статуса задач")
+                .tag("topic", taskStatusTopic)
+                .tag("exception", name)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,136 @@
+package ru.t1.school.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Трассировка событий о смене статуса задач от запроса на изменение до отправки письма.
+ * <p>
+ * Контекст трассировки запроса сохраняется в строке outbox в формате W3C {@code traceparent}.
+ * {@link OutboxRelay} продолжает трассу спаном публикации и передает его контекст в заголовке
+ * сообщения Kafka, консьюмер — спаном обработки сообщения, а {@link NotificationService} — спаном
+ * отправки письма. Поэтому запрос PUT или PATCH виден в коллекторе одной трассой вместе с ожиданием
+ * в outbox, Kafka и очереди писем. Заголовок переносится в топики повторов вместе с сообщением,
+ * так что повторные попытки отправки попадают в ту же трассу.
+ * </p>
+ */
+@Component
+public class TaskStatusTracing {
+
+    /**
+     * Заголовок W3C Trace Context с идентификаторами трассы и родительского спана.
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param tracer     трассировщик.
+     * @param propagator формат передачи контекста трассировки между процессами.
+     */
+    @Autowired
+    public TaskStatusTracing(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * Возвращает контекст текущего спана для записи в outbox.
+     *
+     * @return значение {@code traceparent} или {@code null}, если текущего спана нет.
+     */
+    public String currentTraceparent() {
+        Span span = tracer.currentSpan();
+        if (span == null) {
+            return null;
+        }
+        Map<String, String> carrier = new HashMap<>();
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get(TRACEPARENT);
+    }
+
+    /**
+     * Возвращает контекст трассировки, переданный в заголовках сообщения Kafka.
+     *
+     * @param headers заголовки сообщения.
+     * @return значение {@code traceparent} или {@code null}, если заголовка нет.
+     */
+    public String traceparent(Headers headers) {
+        Header header = headers.lastHeader(TRACEPARENT);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Начинает спан публикации события в Kafka и записывает его контекст в заголовки сообщения.
+     * <p>
+     * Спан продолжает трассу запроса, изменившего задачу; если контекст не сохранен (например,
+     * событие записано реактивным API), начинается новая трасса.
+     * </p>
+     *
+     * @param taskStatusDTO событие.
+     * @param traceparent   контекст трассировки изменения задачи или {@code null}.
+     * @param headers       заголовки отправляемого сообщения.
+     * @return начатый спан, который нужно завершить после подтверждения брокером.
+     */
+    public Span startPublish(TaskStatusDTO taskStatusDTO, String traceparent, Headers headers) {
+        // Без сохраненного контекста спан не привязывается к спану опроса outbox, который не экспортируется
+        Span.Builder builder = traceparent == null
+                ? tracer.spanBuilder().setNoParent()
+                : propagator.extract(traceparent, (carrier, key) -> TRACEPARENT.equals(key) ? carrier : null);
+        Span span = builder.name("task-status publish")
+                .kind(Span.Kind.PRODUCER)
+                .tag("task.id", String.valueOf(taskStatusDTO.getTaskId()))
+                .tag("event.id", String.valueOf(taskStatusDTO.getEventId()))
+                .start();
+        propagator.inject(span.context(), headers, (carrier, key, value) -> {
+            carrier.remove(key);
+            carrier.add(key, value.getBytes(StandardCharsets.UTF_8));
+        });
+        return span;
+    }
+
+    /**
+     * Начинает спан обработки сообщения, продолжающий трассу из его заголовков.
+     *
+     * @param record сообщение из Kafka.
+     * @return начатый спан.
+     */
+    public Span startReceive(ConsumerRecord<String, TaskStatusDTO> record) {
+        Span.Builder builder = propagator.extract(record.headers(), (headers, key) -> {
+            Header header = headers.lastHeader(key);
+            return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+        });
+        builder.name("task-status receive")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.destination.name", record.topic())
+                .tag("messaging.kafka.offset", String.valueOf(record.offset()));
+        if (record.value() != null) {
+            builder.tag("task.id", String.valueOf(record.value().getTaskId()));
+        }
+        return builder.start();
+    }
+
+    /**
+     * Делает спан текущим до закрытия возвращенного объекта.
+     *
+     * @param span спан.
+     * @return область действия спана.
+     */
+    public Tracer.SpanInScope withSpan(Span span) {
+        return tracer.withSpan(span);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.t1.school.service;
+
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.entity.OutboxEvent;
+import ru.t1.school.entity.Task;
+import ru.t1.school.entity.TaskStatus;
+import ru.t1.school.exception.TaskStatusTransitionException;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Применение изменений к задаче с проверкой, изменилось ли что-нибудь на самом деле.
+ * <p>
+ * Общие правила для {@link TaskService} и {@link ReactiveTaskService}: поле записывается, только если
+ * новое значение отличается от текущего, а статус меняется только по разрешенным переходам
+ * {@link TaskStatus}. Если ни одно поле не изменилось, задача не сохраняется и событие не записывается.
+ * </p>
+ */
+final class TaskUpdates {
+
+    private TaskUpdates() {
+    }
+
+    /**
+     * Возвращает статус новой задачи: переданный клиентом или {@link TaskStatus#NEW}, если статус не передан.
+     *
+     * @param value статус из запроса на создание задачи
+     * @return название статуса
+     * @throws TaskStatusTransitionException если статус неизвестен
+     */
+    static String initialStatus(String value) {
+        if (value == null) {
+            return TaskStatus.NEW.name();
+        }
+        return TaskStatus.parse(value)
+                .orElseThrow(() -> new TaskStatusTransitionException("Unknown task status: " + value))
+                .name();
+    }
+
+    /**
+     * Заменяет заголовок, описание и пользователя задачи (полное обновление). Статус при этом не меняется.
+     *
+     * @param task    задача
+     * @param taskDTO новые данные задачи
+     * @return {@code true}, если задача изменилась
+     */
+    static boolean replace(Task task, TaskDTO taskDTO) {
+        boolean changed = set(task.getTitle(), taskDTO.getTitle(), task::setTitle);
+        changed |= set(task.getDescription(), taskDTO.getDescription(), task::setDescription);
+        changed |= set(task.getUserId(), taskDTO.getUserId(), task::setUserId);
+        return changed;
+    }
+
+    /**
+     * Применяет к задаче частичное обновление в формате JSON Merge Patch.
+     *
+     * @param task  задача
+     * @param patch переданные клиентом поля
+     * @return {@code true}, если задача изменилась
+     * @throws TaskStatusTransitionException если статус неизвестен или переход в него не разрешен
+     */
+    static boolean patch(Task task, TaskPatchDTO patch) {
+        boolean changed = patch(task.getTitle(), patch.getTitle(), task::setTitle);
+        changed |= patch(task.getDescription(), patch.getDescription(), task::setDescription);
+        changed |= patch(task.getUserId(), patch.getUserId(), task::setUserId);
+        if (patch.getStatus() != null && !Objects.equals(task.getStatus(), patch.getStatus().orElse(null))) {
+            String value = patch.getStatus().orElse(null);
+            TaskStatus status = TaskStatus.parse(value)
+                    .orElseThrow(() -> new TaskStatusTransitionException("Unknown task status: " + value));
+            if (!TaskStatus.canChange(task.getStatus(), status)) {
+                throw new TaskStatusTransitionException("Task " + task.getId() + " cannot change status from "
+                        + task.getStatus() + " to " + status);
+            }
+            task.setStatus(status.name());
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Создает событие об изменении задачи для записи в outbox.
+     *
+     * @param task           измененная задача
+     * @param previousStatus статус задачи до изменения
+     * @param createdAt      время изменения
+     * @param traceparent    контекст трассировки запроса, изменившего задачу
+     * @return событие
+     */
+    static OutboxEvent updateEvent(Task task, String previousStatus, Instant createdAt, String traceparent) {
+        String description = previousStatus.equals(task.getStatus())
+                ? "Task updated"
+                : "Task status changed from " + previousStatus + " to " + task.getStatus();
+        return new OutboxEvent(null, task.getId(), task.getStatus(), previousStatus, description, createdAt, traceparent,
+                task.getUserId());
+    }
+
+    private static <T> boolean patch(T current, Optional<T> value, Consumer<T> setter) {
+        return value != null && set(current, value.orElse(null), setter);
+    }
+
+    private static <T> boolean set(T current, T value, Consumer<T> setter) {
+        if (Objects.equals(current, value)) {
+            return false;
+        }
+        setter.accept(value);
+        return true;
+    }
+}
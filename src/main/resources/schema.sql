@@ -1,7 +1,43 @@
+CREATE SEQUENCE IF NOT EXISTS tasks_id_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS tasks (
-    id SERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('tasks_id_seq'),
     title VARCHAR(255) NOT NULL,
     description TEXT,
     user_id BIGINT NOT NULL,
-    status VARCHAR(50) NOT NULL
-);
\ No newline at end of file
+    status VARCHAR(50) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_tasks_user_id ON tasks (user_id, id);
+
+CREATE INDEX IF NOT EXISTS idx_tasks_user_status_id ON tasks (user_id, status, id);
+
+CREATE INDEX IF NOT EXISTS idx_tasks_status_id ON tasks (status, id);
+
+CREATE INDEX IF NOT EXISTS idx_tasks_text ON tasks
+    USING GIN (to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(description, '')));
+
+CREATE SEQUENCE IF NOT EXISTS task_status_outbox_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS task_status_outbox (
+    id BIGINT PRIMARY KEY DEFAULT nextval('task_status_outbox_id_seq'),
+    task_id BIGINT NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    previous_status VARCHAR(50),
+    description TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    traceparent VARCHAR(55),
+    user_id BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_status_outbox_task_created_at ON task_status_outbox (task_id, created_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_task_status_outbox_created_at ON task_status_outbox (created_at, id);
+
+CREATE TABLE IF NOT EXISTS processed_events (
+    event_id BIGINT PRIMARY KEY,
+    processed_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_events_processed_at ON processed_events (processed_at);
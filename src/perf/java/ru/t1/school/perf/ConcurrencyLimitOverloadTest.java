@@ -0,0 +1,183 @@
+package ru.t1.school.perf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.t1.school.concurrency.AdaptiveConcurrencyLimit;
+import ru.t1.school.concurrency.ConcurrencyLimitFilter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Время ответа под перегрузкой с адаптивным ограничением одновременных запросов и без него.
+ * <p>
+ * Вместо приложения запросы обрабатывает модель базы данных: пул из {@value #CAPACITY} соединений,
+ * запрос занимает соединение на время обработки, а остальные ждут свободного соединения, как в пуле Hikari.
+ * {@value #CLIENTS} клиентов отправляют запросы через {@link ConcurrencyLimitFilter} с параметрами
+ * по умолчанию из {@code application.yml} (или напрямую, без фильтра) с паузой между запросами, что
+ * нагружает пул примерно на три четверти. Затем база замедляется в {@value #SLOWDOWN} раза, и нагрузка
+ * превышает ее возможности. Без ограничения запросы копятся в очереди к пулу и время ответа растет
+ * вместе с ней; с ограничением лишние запросы сразу отклоняются, а 99-й перцентиль принятых остается
+ * близким к времени обработки в замедлившейся базе. Отчет выводится в лог и сохраняется
+ * в {@code target/overload-report.txt}.
+ * </p>
+ * <p>
+ * Запуск: {@code mvn -Pperf test -Dperf.groups=overload}.
+ * </p>
+ */
+@Tag("overload")
+class ConcurrencyLimitOverloadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitOverloadTest.class);
+
+    private static final int CAPACITY = 8;
+    private static final int CLIENTS = 64;
+    private static final int SLOWDOWN = 4;
+    private static final long SERVICE_TIME_MILLIS = 10;
+    private static final long THINK_TIME_MILLIS = 100;
+    private static final long REJECTED_THINK_TIME_MILLIS = 10;
+    private static final Duration NORMAL_LOAD = Duration.ofSeconds(3);
+    private static final Duration SETTLE = Duration.ofSeconds(3);
+    private static final Duration MEASURE = Duration.ofSeconds(5);
+
+    @Test
+    void p99StaysBoundedUnderOverload() throws Exception {
+        Result unlimited = run(null);
+        Result limited = run(new ConcurrencyLimitFilter(limit(), limit(), Duration.ofSeconds(1), new SimpleMeterRegistry()));
+
+        String report = String.format(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s%n",
+                "mode", "accepted/s", "rejected/s", "p50 ms", "p99 ms", "max ms")
+                + unlimited.format("unlimited") + limited.format("limited")
+                + String.format(Locale.ROOT, "database: %d connections, %d ms per request after slowdown; %d clients%n",
+                CAPACITY, SERVICE_TIME_MILLIS * SLOWDOWN, CLIENTS);
+        logger.info("Overload report\n{}", report);
+        Path reportFile = Path.of("target", "overload-report.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, report);
+
+        long slowServiceMillis = SERVICE_TIME_MILLIS * SLOWDOWN;
+        assertTrue(limited.rejected() > 0, "No request was rejected under overload");
+        assertTrue(limited.p99Millis() <= 3 * slowServiceMillis,
+                "p99 " + limited.p99Millis() + " ms exceeds " + 3 * slowServiceMillis + " ms");
+        assertTrue(limited.p99Millis() * 3 <= unlimited.p99Millis(),
+                "p99 " + limited.p99Millis() + " ms is not much lower than " + unlimited.p99Millis() + " ms without the limit");
+    }
+
+    private static AdaptiveConcurrencyLimit limit() {
+        return new AdaptiveConcurrencyLimit(20, 4, 200, 50, Duration.ofSeconds(60));
+    }
+
+    private static Result run(ConcurrencyLimitFilter filter) throws InterruptedException {
+        Semaphore connections = new Semaphore(CAPACITY, true);
+        AtomicLong serviceTimeMillis = new AtomicLong(SERVICE_TIME_MILLIS);
+        Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long start = System.nanoTime();
+        long slowdownAt = start + NORMAL_LOAD.toNanos();
+        long measureFrom = slowdownAt + SETTLE.toNanos();
+        long measureUntil = measureFrom + MEASURE.toNanos();
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Thread client = new Thread(() -> {
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        if (now >= measureUntil) {
+                            return;
+                        }
+                        if (now >= slowdownAt) {
+                            serviceTimeMillis.set(SERVICE_TIME_MILLIS * SLOWDOWN);
+                        }
+                        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks/1");
+                        MockHttpServletResponse response = new MockHttpServletResponse();
+                        long requestStart = System.nanoTime();
+                        if (filter == null) {
+                            query(connections, serviceTimeMillis.get());
+                        } else {
+                            filter.doFilter(request, response, (req, res) -> query(connections, serviceTimeMillis.get()));
+                        }
+                        long requestEnd = System.nanoTime();
+                        boolean rejectedRequest = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value();
+                        if (requestStart >= measureFrom && requestEnd < measureUntil) {
+                            if (rejectedRequest) {
+                                rejected.incrementAndGet();
+                            } else {
+                                accepted.incrementAndGet();
+                                latency.recordValue(requestEnd - requestStart);
+                            }
+                        }
+                        Thread.sleep(rejectedRequest ? REJECTED_THINK_TIME_MILLIS : THINK_TIME_MILLIS);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "overload-client-" + i);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        return new Result(accepted.get(), rejected.get(), latency);
+    }
+
+    private static void query(Semaphore connections, long serviceTimeMillis) {
+        connections.acquireUninterruptibly();
+        try {
+            Thread.sleep(serviceTimeMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.release();
+        }
+    }
+
+    /**
+     * Результат прогона за измеряемый период.
+     */
+    private static final class Result {
+        private final long accepted;
+        private final long rejected;
+        private final Histogram latency;
+
+        private Result(long accepted, long rejected, Histogram latency) {
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.latency = latency;
+        }
+
+        long rejected() {
+            return rejected;
+        }
+
+        double p99Millis() {
+            return latency.getValueAtPercentile(99) / 1e6;
+        }
+
+        String format(String mode) {
+            double seconds = MEASURE.toNanos() / 1e9;
+            return String.format(Locale.ROOT, "%-10s %10.1f %10.1f %10.1f %10.1f %10.1f%n", mode,
+                    accepted / seconds, rejected / seconds, latency.getValueAtPercentile(50) / 1e6, p99Millis(),
+                    latency.getMaxValue() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.t1.school.perf;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Раз в секунду замеряет отставание консьюмера уведомлений и возраст самого старого события в outbox.
+ * <p>
+ * Отставание консьюмера — сумма по разделам топика разницы между последним записанным и последним
+ * подтвержденным смещением группы. Вместе с возрастом события в outbox (метрика {@code outbox.relay.oldest.age})
+ * оно показывает, на каком этапе копятся события, если уведомления не успевают за нагрузкой.
+ * </p>
+ */
+final class LagSampler implements AutoCloseable {
+
+    private final AdminClient adminClient;
+    private final String topic;
+    private final String groupId;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lag-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastLag;
+    private volatile long maxLag;
+    private volatile double maxOutboxAgeMs;
+
+    /**
+     * Создает сэмплер для топика и группы консьюмеров из настроек приложения.
+     *
+     * @param context      контекст приложения
+     * @param kafkaBrokers адреса брокеров Kafka
+     */
+    LagSampler(ConfigurableApplicationContext context, String kafkaBrokers) {
+        this.adminClient = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBrokers));
+        this.topic = context.getEnvironment().getRequiredProperty("kafka.topic.client");
+        this.groupId = context.getEnvironment().getRequiredProperty("kafka.group-id");
+        this.meterRegistry = context.getBean(MeterRegistry.class);
+    }
+
+    void start() {
+        executor.scheduleWithFixedDelay(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    private void sample() {
+        try {
+            long lag = consumerLag();
+            lastLag = lag;
+            maxLag = Math.max(maxLag, lag);
+        } catch (ExecutionException e) {
+            // Группа еще не подтвердила смещения или брокер временно недоступен, замер пропускается
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Gauge outboxAge = meterRegistry.find("outbox.relay.oldest.age").gauge();
+        if (outboxAge != null) {
+            maxOutboxAgeMs = Math.max(maxOutboxAgeMs, outboxAge.value());
+        }
+    }
+
+    private long consumerLag() throws ExecutionException, InterruptedException {
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(groupId)
+                .partitionsToOffsetAndMetadata().get();
+        Map<TopicPartition, OffsetSpec> partitions = adminClient.describeTopics(List.of(topic))
+                .allTopicNames().get().get(topic).partitions().stream()
+                .map(partition -> new TopicPartition(topic, partition.partition()))
+                .collect(Collectors.toMap(Function.identity(), partition -> OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = adminClient.listOffsets(partitions).all().get();
+        long lag = 0;
+        for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+            OffsetAndMetadata offset = committed.get(end.getKey());
+            lag += end.getValue().offset() - (offset == null ? 0 : offset.offset());
+        }
+        return lag;
+    }
+
+    /**
+     * Отставание консьюмера при последнем замере, в сообщениях.
+     */
+    long lastLag() {
+        return lastLag;
+    }
+
+    /**
+     * Наибольшее отставание консьюмера, в сообщениях.
+     */
+    long maxLag() {
+        return maxLag;
+    }
+
+    /**
+     * Наибольший возраст неотправленного события в outbox, в миллисекундах.
+     */
+    double maxOutboxAgeMs() {
+        return maxOutboxAgeMs;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        adminClient.close();
+    }
+}
@@ -0,0 +1,309 @@
+package ru.t1.school.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор HTTP-нагрузки на {@code /tasks} по открытой модели.
+ * <p>
+ * Моменты отправки запросов образуют пуассоновский поток с заданной интенсивностью и не зависят
+ * от того, успело ли приложение ответить на предыдущие запросы. Задержка отсчитывается от запланированного
+ * момента отправки, а не от фактического, поэтому отставание генератора и очереди в приложении
+ * попадают в результат (нет эффекта coordinated omission). Тип каждого запроса выбирается случайно
+ * по весам из состава нагрузки.
+ * </p>
+ */
+final class LoadGenerator {
+
+    /**
+     * Операции с задачами, из которых складывается нагрузка.
+     */
+    enum Operation {
+        READ, LIST, CREATE, UPDATE, PATCH, DELETE
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final double rate;
+    private final int maxInFlight;
+    private final Random random = new Random(42);
+    private final TaskIds taskIds = new TaskIds();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private long revision;
+
+    /**
+     * Создает генератор нагрузки.
+     *
+     * @param client      HTTP-клиент
+     * @param baseUri     адрес приложения
+     * @param mix         веса операций
+     * @param rate        интенсивность поступления запросов в секунду
+     * @param maxInFlight максимальное количество одновременно выполняемых запросов
+     */
+    LoadGenerator(HttpClient client, URI baseUri, Map<Operation, Integer> mix, double rate, int maxInFlight) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Создает задачи, с которыми будет работать нагрузка, массовым запросом {@code POST /tasks/bulk}.
+     *
+     * @param count количество задач
+     * @throws IOException          если приложение не ответило
+     * @throws InterruptedException если поток прерван
+     */
+    void seed(int count) throws IOException, InterruptedException {
+        int chunkSize = 500;
+        for (int from = 0; from < count; from += chunkSize) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + chunkSize, count); i++) {
+                body.append(i == from ? "" : ",").append(taskJson("Seed task " + i, i % 100));
+            }
+            body.append(']');
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/tasks/bulk"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Failed to seed tasks: " + response.statusCode() + " " + response.body());
+            }
+            objectMapper.readTree(response.body()).forEach(task -> taskIds.add(task.get("id").asLong()));
+        }
+    }
+
+    /**
+     * Подает нагрузку в течение заданного времени и дожидается ответов на отправленные запросы.
+     *
+     * @param duration длительность подачи нагрузки
+     * @return результаты по операциям
+     */
+    Result run(Duration duration) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long scheduled = start;
+        while (true) {
+            // Экспоненциальные интервалы между запросами дают пуассоновский поток
+            scheduled += (long) (-Math.log(1 - random.nextDouble()) / rate * 1_000_000_000L);
+            if (scheduled >= end) {
+                break;
+            }
+            long delay;
+            while ((delay = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                result.dropped.increment();
+                continue;
+            }
+            send(nextOperation(), scheduled, result);
+        }
+        long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private Operation nextOperation() {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void send(Operation operation, long scheduled, Result result) {
+        Long id = operation == Operation.CREATE ? null
+                : operation == Operation.DELETE ? taskIds.removeRandom(random) : taskIds.random(random);
+        if (id == null && operation != Operation.LIST) {
+            // Задач не осталось: вместо операции над существующей задачей создается новая
+            operation = Operation.CREATE;
+        }
+        Operation op = operation;
+        inFlight.incrementAndGet();
+        client.sendAsync(request(op, id), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    try {
+                        long latencyMicros = (System.nanoTime() - scheduled) / 1000;
+                        result.stats.get(op).record(latencyMicros, error == null ? response.statusCode() : -1);
+                        if (error == null && op == Operation.CREATE && response.statusCode() == 201) {
+                            taskIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+                        }
+                    } catch (IOException e) {
+                        result.stats.get(op).errors.increment();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+    }
+
+    private HttpRequest request(Operation operation, Long id) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        long rev = ++revision;
+        return switch (operation) {
+            case READ -> builder.uri(baseUri.resolve("/tasks/" + id)).GET().build();
+            case LIST -> builder.uri(baseUri.resolve("/tasks?limit=50" + (id == null ? "" : "&after=" + id))).GET().build();
+            case CREATE -> builder.uri(baseUri.resolve("/tasks"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(taskJson("Perf task " + rev, (int) (rev % 100))))
+                    .build();
+            case UPDATE -> builder.uri(baseUri.resolve("/tasks/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(taskJson("Perf task " + id + " rev " + rev, (int) (id % 100))))
+                    .build();
+            case PATCH -> builder.uri(baseUri.resolve("/tasks/" + id))
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                            "{\"status\":\"" + (rev % 2 == 0 ? "IN_PROGRESS" : "NEW") + "\"}"))
+                    .build();
+            case DELETE -> builder.uri(baseUri.resolve("/tasks/" + id)).DELETE().build();
+        };
+    }
+
+    private static String taskJson(String title, int userId) {
+        return "{\"title\":\"" + title + "\",\"description\":\"Generated by load test\",\"userId\":" + userId + "}";
+    }
+
+    /**
+     * ID существующих задач, над которыми выполняются операции.
+     */
+    private static final class TaskIds {
+        private final List<Long> ids = new ArrayList<>();
+
+        private synchronized void add(long id) {
+            ids.add(id);
+        }
+
+        private synchronized Long random(Random random) {
+            return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+        }
+
+        private synchronized Long removeRandom(Random random) {
+            if (ids.isEmpty()) {
+                return null;
+            }
+            int index = random.nextInt(ids.size());
+            // Последний элемент переносится на место удаленного, чтобы не сдвигать список
+            Long id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+
+    /**
+     * Результаты операций одного типа.
+     * <p>
+     * Ответы {@code 404}, {@code 409}, {@code 412} и {@code 422} учитываются отдельно от ошибок: при
+     * случайном выборе задач они ожидаемы (например, задачу удалили, пока выполнялся запрос к ней).
+     * </p>
+     */
+    static final class OperationStats {
+        private final Histogram latencyMicros = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long latency, int status) {
+            latencyMicros.recordValue(Math.min(latency, HIGHEST_TRACKABLE_MICROS));
+            if (status >= 200 && status < 400) {
+                succeeded.increment();
+            } else if (status == 404 || status == 409 || status == 412 || status == 422) {
+                rejected.increment();
+            } else {
+                errors.increment();
+            }
+        }
+
+        Histogram latencyMicros() {
+            return latencyMicros;
+        }
+
+        long succeeded() {
+            return succeeded.sum();
+        }
+
+        long rejected() {
+            return rejected.sum();
+        }
+
+        long errors() {
+            return errors.sum();
+        }
+
+        long total() {
+            return succeeded() + rejected() + errors();
+        }
+    }
+
+    /**
+     * Результаты подачи нагрузки.
+     */
+    static final class Result {
+        private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        private final LongAdder dropped = new LongAdder();
+        private long elapsedNanos;
+
+        private Result() {
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new OperationStats());
+            }
+        }
+
+        Map<Operation, OperationStats> stats() {
+            return stats;
+        }
+
+        long dropped() {
+            return dropped.sum();
+        }
+
+        Duration elapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        long total() {
+            return stats.values().stream().mapToLong(OperationStats::total).sum();
+        }
+
+        long errors() {
+            return stats.values().stream().mapToLong(OperationStats::errors).sum();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.t1.school.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.util.GreenMail;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Измеряет задержку от изменения статуса задачи до получения письма о нем.
+ * <p>
+ * С заданным интервалом создает отдельную задачу и переводит ее в статус {@code IN_PROGRESS}, запоминая
+ * момент запроса, и ищет в ящике GreenMail уведомления об этих задачах. Задержка включает запись
+ * в outbox, ожидание и объединение событий в relay, публикацию и чтение из Kafka, а также отправку письма.
+ * Ящик опрашивается каждые {@value #POLL_INTERVAL_MS} мс, что ограничивает точность измерения.
+ * </p>
+ */
+final class NotificationProbe implements AutoCloseable {
+
+    private static final long POLL_INTERVAL_MS = 20;
+    private static final Pattern NOTIFICATION = Pattern.compile("Task (\\d+): status changed from \\w+ to IN_PROGRESS");
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final GreenMail mail;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Histogram latencyMillis = new Histogram(TimeUnit.MINUTES.toMillis(10), 3);
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "notification-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> probing;
+    private int processedMessages;
+
+    /**
+     * Создает пробу.
+     *
+     * @param client  HTTP-клиент
+     * @param baseUri адрес приложения
+     * @param mail    SMTP-сервер, принимающий уведомления
+     */
+    NotificationProbe(HttpClient client, URI baseUri, GreenMail mail) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.mail = mail;
+    }
+
+    /**
+     * Начинает изменять задачи с заданным интервалом и опрашивать ящик.
+     * Письма, полученные до запуска, пропускаются.
+     *
+     * @param interval интервал между изменениями
+     */
+    void start(Duration interval) {
+        processedMessages = mail.getReceivedMessages().length;
+        probing = executor.scheduleAtFixedRate(this::probe, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Прекращает изменять задачи и ждет уведомлений об уже измененных.
+     *
+     * @param timeout максимальное время ожидания
+     * @return {@code true}, если получены все уведомления
+     * @throws InterruptedException если поток прерван
+     */
+    boolean awaitDelivered(Duration timeout) throws InterruptedException {
+        probing.cancel(false);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        return pending.isEmpty();
+    }
+
+    private void probe() {
+        try {
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder(baseUri.resolve("/tasks"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"title\":\"Probe task\",\"description\":\"Notification latency probe\",\"userId\":0}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (created.statusCode() != 201) {
+                failed.incrementAndGet();
+                return;
+            }
+            long id = objectMapper.readTree(created.body()).get("id").asLong();
+            pending.put(id, System.nanoTime());
+            HttpResponse<Void> patched = client.send(HttpRequest.newBuilder(baseUri.resolve("/tasks/" + id))
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"status\":\"IN_PROGRESS\"}"))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            if (patched.statusCode() != 200) {
+                pending.remove(id);
+                failed.incrementAndGet();
+                return;
+            }
+            sent.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void poll() {
+        MimeMessage[] messages = mail.getReceivedMessages();
+        long now = System.nanoTime();
+        for (int i = processedMessages; i < messages.length; i++) {
+            try {
+                // Уведомления, отправленные одним письмом, разделены пустой строкой
+                Matcher matcher = NOTIFICATION.matcher(String.valueOf(messages[i].getContent()));
+                while (matcher.find()) {
+                    Long startedAt = pending.remove(Long.parseLong(matcher.group(1)));
+                    if (startedAt != null) {
+                        latencyMillis.recordValue(Math.min(TimeUnit.NANOSECONDS.toMillis(now - startedAt),
+                                latencyMillis.getHighestTrackableValue()));
+                    }
+                }
+            } catch (IOException | MessagingException e) {
+                // Письмо не удалось разобрать; пропавшие уведомления будут видны по числу недоставленных
+            }
+        }
+        processedMessages = messages.length;
+    }
+
+    /**
+     * Распределение задержки от запроса на изменение статуса до получения письма, в миллисекундах.
+     */
+    Histogram latencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Количество успешно измененных задач.
+     */
+    long sent() {
+        return sent.get();
+    }
+
+    /**
+     * Количество задач, изменить которые не удалось.
+     */
+    long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Количество измененных задач, уведомления о которых не получены.
+     */
+    int missing() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
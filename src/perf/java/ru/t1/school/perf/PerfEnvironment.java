@@ -0,0 +1,69 @@
+package ru.t1.school.perf;
+
+import com.icegreen.greenmail.util.GreenMail;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.t1.school.SchoolApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приложение, запущенное в том же процессе вместе с локальными заменами внешних сервисов ({@link PerfServices}).
+ * <p>
+ * Дополнительные аргументы командной строки позволяют настроить приложение под сценарий нагрузки.
+ * </p>
+ */
+final class PerfEnvironment implements AutoCloseable {
+
+    private final PerfServices services;
+    private final ConfigurableApplicationContext context;
+    private final int port;
+
+    private PerfEnvironment(PerfServices services, ConfigurableApplicationContext context) {
+        this.services = services;
+        this.context = context;
+        this.port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    /**
+     * Запускает внешние сервисы и приложение на свободном порту.
+     *
+     * @param appArgs дополнительные аргументы командной строки приложения
+     * @return запущенное окружение
+     * @throws IOException если не удалось запустить PostgreSQL
+     */
+    static PerfEnvironment start(List<String> appArgs) throws IOException {
+        PerfServices services = PerfServices.start();
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.addAll(services.appArgs());
+        args.addAll(appArgs);
+        ConfigurableApplicationContext context = SpringApplication.run(SchoolApplication.class, args.toArray(String[]::new));
+        return new PerfEnvironment(services, context);
+    }
+
+    URI baseUri() {
+        return URI.create("http://localhost:" + port);
+    }
+
+    GreenMail mail() {
+        return services.mail();
+    }
+
+    ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    String kafkaBrokers() {
+        return services.kafkaBrokers();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        services.close();
+    }
+}
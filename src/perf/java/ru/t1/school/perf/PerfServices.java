@@ -0,0 +1,87 @@
+package ru.t1.school.perf;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Локальные замены внешних сервисов приложения: встроенные PostgreSQL, Kafka и SMTP-сервер GreenMail.
+ * <p>
+ * PostgreSQL запускается из бинарных файлов без Docker: приложение использует возможности, которых нет
+ * в H2 (advisory-блокировки, {@code ON CONFLICT}, полнотекстовый индекс). Параметры подключения
+ * к сервисам передаются приложению аргументами командной строки, чтобы перекрыть {@code application.yml}.
+ * </p>
+ */
+final class PerfServices implements AutoCloseable {
+
+    private static final String MAIL_USER = "perf@localhost";
+    private static final String MAIL_PASSWORD = "perf";
+
+    private final EmbeddedPostgres postgres;
+    private final EmbeddedKafkaKraftBroker kafka;
+    private final GreenMail mail;
+
+    private PerfServices(EmbeddedPostgres postgres, EmbeddedKafkaKraftBroker kafka, GreenMail mail) {
+        this.postgres = postgres;
+        this.kafka = kafka;
+        this.mail = mail;
+    }
+
+    /**
+     * Запускает PostgreSQL, Kafka и SMTP-сервер на свободных портах.
+     *
+     * @return запущенные сервисы
+     * @throws IOException если не удалось запустить PostgreSQL
+     */
+    static PerfServices start() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 3);
+        kafka.afterPropertiesSet();
+        GreenMail mail = new GreenMail(new ServerSetup(0, null, ServerSetup.PROTOCOL_SMTP).dynamicPort());
+        mail.start();
+        mail.setUser(MAIL_USER, MAIL_USER, MAIL_PASSWORD);
+        return new PerfServices(postgres, kafka, mail);
+    }
+
+    /**
+     * Возвращает аргументы командной строки, подключающие приложение к запущенным сервисам.
+     *
+     * @return аргументы командной строки приложения
+     */
+    List<String> appArgs() {
+        return List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                "--spring.r2dbc.url=r2dbc:pool:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                "--kafka.bootstrap-servers=" + kafka.getBrokersAsString(),
+                "--spring.kafka.bootstrap-servers=" + kafka.getBrokersAsString(),
+                "--spring.mail.host=localhost",
+                "--spring.mail.port=" + mail.getSmtp().getPort(),
+                "--spring.mail.username=" + MAIL_USER,
+                "--spring.mail.password=" + MAIL_PASSWORD,
+                "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                "--spring.jpa.show-sql=false");
+    }
+
+    EmbeddedPostgres postgres() {
+        return postgres;
+    }
+
+    GreenMail mail() {
+        return mail;
+    }
+
+    String kafkaBrokers() {
+        return kafka.getBrokersAsString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mail.stop();
+        kafka.destroy();
+        postgres.close();
+    }
+}
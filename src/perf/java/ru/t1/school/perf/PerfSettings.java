@@ -0,0 +1,132 @@
+package ru.t1.school.perf;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного теста, читаемые из системных свойств {@code perf.*}.
+ * <p>
+ * Свойства передаются через командную строку Maven, например:
+ * {@code mvn -Pperf test -Dperf.rate=500 -Dperf.duration=PT10M -Dperf.mix=read:80,update:20}.
+ * </p>
+ */
+final class PerfSettings {
+
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<LoadGenerator.Operation, Integer> mix;
+    private final int seedTasks;
+    private final int maxInFlight;
+    private final Duration probeInterval;
+    private final Duration drainTimeout;
+    private final double maxErrorRate;
+    private final List<String> appArgs;
+
+    private PerfSettings(double rate, Duration warmup, Duration duration, Map<LoadGenerator.Operation, Integer> mix,
+                         int seedTasks, int maxInFlight, Duration probeInterval, Duration drainTimeout,
+                         double maxErrorRate, List<String> appArgs) {
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.seedTasks = seedTasks;
+        this.maxInFlight = maxInFlight;
+        this.probeInterval = probeInterval;
+        this.drainTimeout = drainTimeout;
+        this.maxErrorRate = maxErrorRate;
+        this.appArgs = appArgs;
+    }
+
+    /**
+     * Читает параметры из системных свойств, подставляя значения по умолчанию.
+     *
+     * @return параметры теста
+     */
+    static PerfSettings fromSystemProperties() {
+        String appArgs = System.getProperty("perf.app-args", "").trim();
+        return new PerfSettings(
+                Double.parseDouble(System.getProperty("perf.rate", "200")),
+                Duration.parse(System.getProperty("perf.warmup", "PT15S")),
+                Duration.parse(System.getProperty("perf.duration", "PT2M")),
+                parseMix(System.getProperty("perf.mix", "read:60,list:5,create:10,update:15,patch:5,delete:5")),
+                Integer.parseInt(System.getProperty("perf.seed-tasks", "1000")),
+                Integer.parseInt(System.getProperty("perf.max-in-flight", "1000")),
+                Duration.parse(System.getProperty("perf.probe-interval", "PT0.5S")),
+                Duration.parse(System.getProperty("perf.drain-timeout", "PT1M")),
+                Double.parseDouble(System.getProperty("perf.max-error-rate", "0.01")),
+                appArgs.isEmpty() ? List.of() : Arrays.asList(appArgs.split("\\s+")));
+    }
+
+    /**
+     * Разбирает состав нагрузки вида {@code read:60,update:20}: операция и ее относительный вес.
+     */
+    private static Map<LoadGenerator.Operation, Integer> parseMix(String value) {
+        Map<LoadGenerator.Operation, Integer> mix = new EnumMap<>(LoadGenerator.Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid perf.mix entry: " + entry);
+            }
+            mix.put(LoadGenerator.Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * Интенсивность поступления запросов в секунду.
+     */
+    double rate() {
+        return rate;
+    }
+
+    Duration warmup() {
+        return warmup;
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    Map<LoadGenerator.Operation, Integer> mix() {
+        return mix;
+    }
+
+    int seedTasks() {
+        return seedTasks;
+    }
+
+    /**
+     * Максимальное количество одновременно выполняемых запросов; запросы сверх него не отправляются
+     * и учитываются как отброшенные, чтобы генератор не исчерпал память при деградации приложения.
+     */
+    int maxInFlight() {
+        return maxInFlight;
+    }
+
+    Duration probeInterval() {
+        return probeInterval;
+    }
+
+    Duration drainTimeout() {
+        return drainTimeout;
+    }
+
+    double maxErrorRate() {
+        return maxErrorRate;
+    }
+
+    List<String> appArgs() {
+        return appArgs;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s, warmup=" + warmup + ", duration=" + duration + ", mix=" + mix
+                + ", seedTasks=" + seedTasks + ", maxInFlight=" + maxInFlight + ", probeInterval=" + probeInterval
+                + ", appArgs=" + appArgs;
+    }
+}
@@ -0,0 +1,224 @@
+package ru.t1.school.perf;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Время запуска собранного приложения: от старта JVM до первого успешного ответа {@code GET /tasks}.
+ * <p>
+ * Приложение запускается отдельным процессом со встроенными PostgreSQL, Kafka и SMTP-сервером в трех
+ * вариантах: исполняемый jar с профилем по умолчанию, распакованный jar с классами Spring AOT и профилем
+ * {@code fast-startup}, и то же вместе с архивом AppCDS. Варианты чередуются, каждый запускается
+ * {@code startup.runs} раз (по умолчанию 5). Отчет выводится в лог и сохраняется в
+ * {@code target/startup-report.txt}, вывод приложений — в {@code target/startup-logs}.
+ * </p>
+ * <p>
+ * Требует собранного приложения: {@code mvn -Pfast-startup -DskipTests package}; варианты, для которых
+ * нет файлов, пропускаются. Запуск: {@code mvn -Pperf test -Dperf.groups=startup}.
+ * </p>
+ */
+@Tag("startup")
+class StartupTimeTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimeTest.class);
+
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in [\\d.]+ seconds \\(process running for ([\\d.]+)\\)");
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        int runs = Integer.parseInt(System.getProperty("startup.runs", "5"));
+        List<Mode> modes = modes();
+        assumeTrue(!modes.isEmpty(), "Application is not packaged, run mvn -Pfast-startup -DskipTests package first");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        Path logs = Path.of("target", "startup-logs");
+        Files.createDirectories(logs);
+        Map<Mode, List<Long>> timeToFirstRequest = new LinkedHashMap<>();
+        Map<Mode, List<Long>> reportedStartup = new LinkedHashMap<>();
+        try (PerfServices services = PerfServices.start()) {
+            for (int run = 1; run <= runs; run++) {
+                for (Mode mode : modes) {
+                    if (mode.fastStartup()) {
+                        // В профиле fast-startup схема не создается при запуске
+                        try (Connection connection = services.postgres().getPostgresDatabase().getConnection()) {
+                            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+                        }
+                    }
+                    Path log = logs.resolve(mode.name() + "-" + run + ".log");
+                    long millis = measure(client, mode, services, log);
+                    logger.info("{} run {}: first request after {} ms", mode.name(), run, millis);
+                    timeToFirstRequest.computeIfAbsent(mode, m -> new ArrayList<>()).add(millis);
+                    Matcher started = STARTED.matcher(Files.readString(log));
+                    if (started.find()) {
+                        reportedStartup.computeIfAbsent(mode, m -> new ArrayList<>())
+                                .add(Math.round(Double.parseDouble(started.group(1)) * 1000));
+                    }
+                }
+            }
+        }
+
+        String report = report(timeToFirstRequest, reportedStartup);
+        logger.info("Startup report\n{}", report);
+        Path reportFile = Path.of("target", "startup-report.txt");
+        Files.writeString(reportFile, report);
+        assertTrue(timeToFirstRequest.values().stream().allMatch(times -> times.size() == runs));
+    }
+
+    private static List<Mode> modes() {
+        Path jar = Path.of(System.getProperty("startup.jar", "target/school-0.0.1-SNAPSHOT.jar"));
+        Path directory = Path.of(System.getProperty("startup.fast-startup-directory", "target/fast-startup"));
+        Path extractedJar = directory.resolve(jar.getFileName());
+        Path archive = directory.resolve("application.jsa");
+        List<Mode> modes = new ArrayList<>();
+        if (Files.exists(jar)) {
+            modes.add(new Mode("jar", jar, List.of(), false));
+        }
+        if (Files.exists(extractedJar)) {
+            modes.add(new Mode("aot", extractedJar, List.of("-Dspring.aot.enabled=true"), true));
+        }
+        if (Files.exists(extractedJar) && Files.exists(archive)) {
+            modes.add(new Mode("aot+cds", extractedJar,
+                    List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive), true));
+        }
+        return modes;
+    }
+
+    private static long measure(HttpClient client, Mode mode, PerfServices services, Path log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmArgs());
+        command.add("-jar");
+        command.add(mode.jar().toString());
+        command.add("--server.port=" + port);
+        command.addAll(services.appArgs());
+        if (mode.fastStartup()) {
+            command.add("--spring.profiles.active=fast-startup");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tasks?limit=1"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    fail(mode.name() + " exited with code " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // Порт еще не открыт
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            return fail(mode.name() + " did not answer within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String report(Map<Mode, List<Long>> timeToFirstRequest, Map<Mode, List<Long>> reportedStartup) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-8s %5s %14s %14s %14s %16s%n",
+                "mode", "runs", "min ms", "median ms", "max ms", "jvm median ms"));
+        for (Map.Entry<Mode, List<Long>> entry : timeToFirstRequest.entrySet()) {
+            List<Long> times = entry.getValue().stream().sorted().toList();
+            List<Long> reported = reportedStartup.getOrDefault(entry.getKey(), List.of()).stream().sorted().toList();
+            report.append(String.format(Locale.ROOT, "%-8s %5d %14d %14d %14d %16s%n",
+                    entry.getKey().name(), times.size(), times.get(0), median(times), times.get(times.size() - 1),
+                    reported.isEmpty() ? "-" : Long.toString(median(reported))));
+        }
+        report.append("min/median/max: from JVM start to the first successful GET /tasks; "
+                + "jvm: process uptime reported by Spring Boot when the context is ready\n");
+        return report.toString();
+    }
+
+    private static long median(List<Long> sorted) {
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * Вариант запуска приложения.
+     */
+    private static final class Mode {
+        private final String name;
+        private final Path jar;
+        private final List<String> jvmArgs;
+        private final boolean fastStartup;
+
+        private Mode(String name, Path jar, List<String> jvmArgs, boolean fastStartup) {
+            this.name = name;
+            this.jar = jar;
+            this.jvmArgs = jvmArgs;
+            this.fastStartup = fastStartup;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Path jar() {
+            return jar;
+        }
+
+        List<String> jvmArgs() {
+            return jvmArgs;
+        }
+
+        /**
+         * Возвращает признак запуска с профилем {@code fast-startup}, в котором схема базы создается заранее.
+         */
+        boolean fastStartup() {
+            return fastStartup;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.t1.school.perf;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест приложения целиком: HTTP-запросы к {@code /tasks}, outbox, Kafka и отправка писем.
+ * <p>
+ * Приложение запускается со встроенными PostgreSQL, Kafka и SMTP-сервером, после чего на него подается
+ * нагрузка по открытой модели: сначала прогрев, результаты которого не учитываются, затем измеряемый
+ * период. Одновременно проба измеряет задержку от смены статуса до получения письма, а сэмплер —
+ * отставание консьюмера Kafka. Отчет выводится в лог и сохраняется в {@code target/perf-report.txt}.
+ * Параметры описаны в {@link PerfSettings}.
+ * </p>
+ */
+@Tag("perf")
+class TaskSoakTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskSoakTest.class);
+
+    @Test
+    void soak() throws Exception {
+        PerfSettings settings = PerfSettings.fromSystemProperties();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        try (PerfEnvironment environment = PerfEnvironment.start(settings.appArgs())) {
+            LoadGenerator generator = new LoadGenerator(client, environment.baseUri(), settings.mix(),
+                    settings.rate(), settings.maxInFlight());
+            generator.seed(settings.seedTasks());
+            logger.info("Warming up for {}", settings.warmup());
+            generator.run(settings.warmup());
+
+            LoadGenerator.Result result;
+            boolean delivered;
+            try (NotificationProbe probe = new NotificationProbe(client, environment.baseUri(), environment.mail());
+                 LagSampler lagSampler = new LagSampler(environment.context(), environment.kafkaBrokers())) {
+                probe.start(settings.probeInterval());
+                lagSampler.start();
+                logger.info("Running load: {}", settings);
+                result = generator.run(settings.duration());
+                delivered = probe.awaitDelivered(settings.drainTimeout());
+
+                String report = report(settings, result, probe, lagSampler);
+                logger.info("Performance report\n{}", report);
+                Path reportFile = Path.of("target", "perf-report.txt");
+                Files.createDirectories(reportFile.getParent());
+                Files.writeString(reportFile, report);
+
+                assertTrue(probe.sent() > 0, "No probe task was updated");
+                assertEquals(0, probe.failed(), "Failed to update probe tasks");
+            }
+            double errorRate = result.total() == 0 ? 1 : (double) result.errors() / result.total();
+            assertTrue(errorRate <= settings.maxErrorRate(),
+                    String.format(Locale.ROOT, "Error rate %.4f exceeds %.4f", errorRate, settings.maxErrorRate()));
+            assertTrue(delivered, "Not all status change notifications were delivered within " + settings.drainTimeout());
+        }
+    }
+
+    private static String report(PerfSettings settings, LoadGenerator.Result result, NotificationProbe probe,
+                                 LagSampler lagSampler) {
+        StringBuilder report = new StringBuilder();
+        double seconds = result.elapsed().toNanos() / 1e9;
+        report.append("Settings: ").append(settings).append('\n');
+        report.append(String.format(Locale.ROOT, "Requests: %d in %.1f s (%.1f/s), dropped by generator: %d%n",
+                result.total(), seconds, result.total() / seconds, result.dropped()));
+        report.append(String.format(Locale.ROOT, "%-8s %8s %8s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "ok", "rejected", "errors", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<LoadGenerator.Operation, LoadGenerator.OperationStats> entry : result.stats().entrySet()) {
+            LoadGenerator.OperationStats stats = entry.getValue();
+            if (stats.total() == 0) {
+                continue;
+            }
+            Histogram latency = stats.latencyMicros();
+            report.append(String.format(Locale.ROOT, "%-8s %8d %8d %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), stats.total(), stats.succeeded(), stats.rejected(), stats.errors(),
+                    stats.total() / seconds,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxValue() / 1000.0));
+        }
+        Histogram notification = probe.latencyMillis();
+        report.append(String.format(Locale.ROOT,
+                "Update to email: %d probes, %d delivered, %d missing, %d failed; "
+                        + "p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                probe.sent(), notification.getTotalCount(), probe.missing(), probe.failed(),
+                notification.getValueAtPercentile(50), notification.getValueAtPercentile(90),
+                notification.getValueAtPercentile(99), notification.getMaxValue()));
+        report.append(String.format(Locale.ROOT, "Kafka consumer lag: max %d, final %d messages; max outbox age %.0f ms%n",
+                lagSampler.maxLag(), lagSampler.lastLag(), lagSampler.maxOutboxAgeMs()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.t1.school.perf;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Пропускная способность и время ответа приложения с обработкой запросов в платформенных
+ * и виртуальных потоках ({@code spring.threads.virtual.enabled}).
+ * <p>
+ * Приложение дважды запускается со встроенными PostgreSQL, Kafka и SMTP-сервером, как в {@link TaskSoakTest}:
+ * сначала в платформенных потоках, затем в виртуальных. На каждый запуск подается одна и та же нагрузка
+ * из {@link PerfSettings} (тот же состав, интенсивность и длительность, прогрев не учитывается).
+ * Чтобы режимы различались, интенсивность должна превышать то, что успевают обработать 200 потоков
+ * Tomcat по умолчанию, например, {@code -Dperf.rate=2000 -Dperf.max-in-flight=5000}. Отчет с успешными
+ * ответами в секунду и перцентилями задержки по всем операциям выводится в лог и сохраняется
+ * в {@code target/threads-report.txt}.
+ * </p>
+ * <p>
+ * Требует Java 21; на более ранних версиях тест пропускается. Запуск:
+ * {@code mvn -Pperf test -Dperf.groups=threads -Dperf.rate=2000 -Dperf.duration=PT1M}.
+ * </p>
+ */
+@Tag("threads")
+class VirtualThreadsComparisonTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsComparisonTest.class);
+
+    @Test
+    void compareThreadModes() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+        PerfSettings settings = PerfSettings.fromSystemProperties();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Result platform = run(client, settings, false);
+        Result virtual = run(client, settings, true);
+
+        String report = "Settings: " + settings + '\n'
+                + String.format(Locale.ROOT, "%-9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "mode", "requests", "ok/s", "errors", "dropped", "p50 ms", "p99 ms", "max ms")
+                + platform.format("platform") + virtual.format("virtual");
+        logger.info("Thread mode report\n{}", report);
+        Path reportFile = Path.of("target", "threads-report.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, report);
+
+        assertTrue(platform.result.total() > 0, "No request completed with platform threads");
+        assertTrue(virtual.result.total() > 0, "No request completed with virtual threads");
+    }
+
+    private static Result run(HttpClient client, PerfSettings settings, boolean virtualThreads) throws Exception {
+        List<String> appArgs = new ArrayList<>(settings.appArgs());
+        appArgs.add("--spring.threads.virtual.enabled=" + virtualThreads);
+        try (PerfEnvironment environment = PerfEnvironment.start(appArgs)) {
+            LoadGenerator generator = new LoadGenerator(client, environment.baseUri(), settings.mix(),
+                    settings.rate(), settings.maxInFlight());
+            generator.seed(settings.seedTasks());
+            logger.info("Warming up with virtual threads {} for {}", virtualThreads, settings.warmup());
+            generator.run(settings.warmup());
+            logger.info("Running load with virtual threads {}: {}", virtualThreads, settings);
+            return new Result(generator.run(settings.duration()));
+        }
+    }
+
+    /**
+     * Результат прогона в одном режиме с задержкой по всем операциям.
+     */
+    private static final class Result {
+        private final LoadGenerator.Result result;
+        private final Histogram latencyMicros;
+
+        private Result(LoadGenerator.Result result) {
+            this.result = result;
+            this.latencyMicros = new Histogram(3);
+            result.stats().values().forEach(stats -> latencyMicros.add(stats.latencyMicros()));
+        }
+
+        String format(String mode) {
+            double seconds = result.elapsed().toNanos() / 1e9;
+            long succeeded = result.stats().values().stream().mapToLong(LoadGenerator.OperationStats::succeeded).sum();
+            return String.format(Locale.ROOT, "%-9s %9d %9.1f %9d %9d %9.2f %9.2f %9.2f%n", mode,
+                    result.total(), succeeded / seconds, result.errors(), result.dropped(),
+                    latencyMicros.getValueAtPercentile(50) / 1000.0, latencyMicros.getValueAtPercentile(99) / 1000.0,
+                    latencyMicros.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.t1.school.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final int WINDOW_SIZE = 10;
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Duration NO_PROBE = Duration.ofHours(1);
+
+    @Test
+    void growsWhenLatencyStaysAtBaseline() {
+        AdaptiveConcurrencyLimit limit = limit(NO_PROBE);
+        window(limit, RTT, 10);
+
+        window(limit, RTT, 10);
+
+        assertEquals(21, limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenLimitIsUnderused() {
+        AdaptiveConcurrencyLimit limit = limit(NO_PROBE);
+        window(limit, RTT, 10);
+
+        window(limit, RTT, 2);
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void shrinksByStepWhenQueueBuildsUp() {
+        AdaptiveConcurrencyLimit limit = limit(NO_PROBE);
+        window(limit, RTT, 10);
+
+        window(limit, RTT * 18 / 10, 10);
+
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void shrinksAtMostByHalfWhenLatencyJumps() {
+        AdaptiveConcurrencyLimit limit = limit(NO_PROBE);
+        window(limit, RTT, 10);
+
+        window(limit, RTT * 10, 10);
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void clampsToMinAndMax() {
+        AdaptiveConcurrencyLimit limit = limit(NO_PROBE);
+        window(limit, RTT, 10);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, RTT * 10, 2);
+        }
+        assertEquals(4, limit.getLimit());
+
+        window(limit, RTT, 2);
+        for (int i = 0; i < 50; i++) {
+            window(limit, RTT, limit.getLimit());
+        }
+        assertEquals(30, limit.getLimit());
+    }
+
+    @Test
+    void remeasuresBaselineOnProbe() {
+        AdaptiveConcurrencyLimit limit = limit(Duration.ZERO);
+        window(limit, RTT, 10);
+
+        // Лимит не исчерпан: новое время становится наименьшим, лимит не меняется
+        window(limit, RTT * 18 / 10, 5);
+        assertEquals(20, limit.getLimit());
+
+        // Без сброса это время уменьшило бы лимит
+        window(limit, RTT * 18 / 10, 20);
+        assertEquals(21, limit.getLimit());
+    }
+
+    @Test
+    void skipsProbeWhileLimitIsExhausted() {
+        AdaptiveConcurrencyLimit limit = limit(Duration.ZERO);
+        window(limit, RTT, 10);
+
+        window(limit, RTT * 10, 20);
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void rejectsRequestsOverLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, WINDOW_SIZE, NO_PROBE);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    void keepsInFlightConsistentUnderConcurrentRelease() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200, WINDOW_SIZE, NO_PROBE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (limit.tryAcquire()) {
+                            limit.release(RTT);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, limit.getInFlight());
+        assertTrue(limit.getLimit() >= 4 && limit.getLimit() <= 200);
+    }
+
+    @Test
+    void rejectsInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(2, 4, 30, WINDOW_SIZE, NO_PROBE));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(40, 4, 30, WINDOW_SIZE, NO_PROBE));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(1, 0, 30, WINDOW_SIZE, NO_PROBE));
+    }
+
+    private static AdaptiveConcurrencyLimit limit(Duration probeInterval) {
+        return new AdaptiveConcurrencyLimit(20, 4, 30, WINDOW_SIZE, probeInterval);
+    }
+
+    /**
+     * Завершает одно окно запросов с заданным временем, пока обрабатывается {@code concurrency} запросов.
+     */
+    private static void window(AdaptiveConcurrencyLimit limit, long rttNanos, int concurrency) {
+        for (int i = 0; i < concurrency; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            limit.release(rttNanos);
+            // После последнего запроса окна лимит мог уменьшиться, поэтому место больше не занимается
+            if (i < WINDOW_SIZE - 1) {
+                assertTrue(limit.tryAcquire());
+            }
+        }
+        for (int i = 1; i < concurrency; i++) {
+            limit.release();
+        }
+    }
+}
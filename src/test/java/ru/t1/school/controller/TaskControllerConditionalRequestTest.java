@@ -0,0 +1,130 @@
+package ru.t1.school.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.exception.GlobalExceptionHandler;
+import ru.t1.school.exception.TaskNotFoundException;
+import ru.t1.school.exception.TaskVersionMismatchException;
+import ru.t1.school.service.TaskService;
+import ru.t1.school.service.TaskStatusBroadcaster;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaskControllerConditionalRequestTest {
+
+    private static final String TASK_JSON = "{\"title\":\"Task 1\",\"userId\":1}";
+
+    private final TaskService taskService = mock(TaskService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        TaskController controller = new TaskController(taskService, mock(TaskStatusBroadcaster.class), new ObjectMapper(),
+                mock(Validator.class), 500);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void returnsTaskWithETag() throws Exception {
+        when(taskService.getTaskById(1L)).thenReturn(new TaskDTO(1L, "Task 1", null, 1L, "NEW", 3L));
+
+        mockMvc.perform(get("/tasks/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void returnsNotModifiedWithoutLoadingTask() throws Exception {
+        when(taskService.getTaskVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/tasks/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+        verify(taskService, never()).getTaskById(anyLong());
+    }
+
+    @Test
+    void returnsTaskWhenIfNoneMatchIsStale() throws Exception {
+        when(taskService.getTaskVersion(1L)).thenReturn(4L);
+        when(taskService.getTaskById(1L)).thenReturn(new TaskDTO(1L, "Task 1", null, 1L, "NEW", 4L));
+
+        mockMvc.perform(get("/tasks/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void returnsNotFoundForConditionalGetOfMissingTask() throws Exception {
+        when(taskService.getTaskVersion(1L)).thenThrow(new TaskNotFoundException("Task not found with id 1"));
+
+        mockMvc.perform(get("/tasks/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void passesIfMatchVersionToService() throws Exception {
+        when(taskService.updateTask(eq(1L), any(TaskDTO.class), eq(3L)))
+                .thenReturn(new TaskDTO(1L, "Task 1", null, 1L, "NEW", 4L));
+
+        mockMvc.perform(put("/tasks/1").header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(TASK_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void returnsPreconditionFailedForStaleIfMatch() throws Exception {
+        when(taskService.updateTask(eq(1L), any(TaskDTO.class), eq(3L)))
+                .thenThrow(new TaskVersionMismatchException("Task 1 has version 4, expected 3"));
+
+        mockMvc.perform(put("/tasks/1").header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(TASK_JSON))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void returnsPreconditionFailedForWeakIfMatchWithoutCallingService() throws Exception {
+        mockMvc.perform(delete("/tasks/1").header(HttpHeaders.IF_MATCH, "W/\"3\""))
+                .andExpect(status().isPreconditionFailed());
+        verify(taskService, never()).deleteTask(anyLong(), any());
+    }
+
+    @Test
+    void returnsNotFoundForConditionalDeleteOfMissingTask() throws Exception {
+        doThrow(new TaskNotFoundException("Task not found with id 1")).when(taskService).deleteTask(1L, 3L);
+
+        mockMvc.perform(delete("/tasks/1").header(HttpHeaders.IF_MATCH, "\"3\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deletesWithoutVersionCheckWithoutIfMatch() throws Exception {
+        mockMvc.perform(delete("/tasks/1"))
+                .andExpect(status().isNoContent());
+        verify(taskService).deleteTask(eq(1L), isNull());
+    }
+}
@@ -0,0 +1,54 @@
+package ru.t1.school.controller;
+
+import org.junit.jupiter.api.Test;
+import ru.t1.school.exception.TaskVersionMismatchException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskETagsTest {
+
+    @Test
+    void quotesVersion() {
+        assertEquals("\"3\"", TaskETags.of(3L));
+    }
+
+    @Test
+    void matchesIfNoneMatchWithWeakComparison() {
+        assertTrue(TaskETags.matches("\"3\"", 3L));
+        assertTrue(TaskETags.matches("W/\"3\"", 3L));
+        assertTrue(TaskETags.matches("\"1\", \"3\"", 3L));
+        assertTrue(TaskETags.matches(" * ", 3L));
+    }
+
+    @Test
+    void doesNotMatchOtherVersions() {
+        assertFalse(TaskETags.matches("\"2\"", 3L));
+        assertFalse(TaskETags.matches("\"1\", W/\"2\"", 3L));
+        assertFalse(TaskETags.matches("3", 3L));
+    }
+
+    @Test
+    void parsesIfMatch() {
+        assertEquals(3L, TaskETags.expectedVersion("\"3\""));
+        assertEquals(3L, TaskETags.expectedVersion(" \"3\" "));
+    }
+
+    @Test
+    void skipsVersionCheckWithoutIfMatchOrWithWildcard() {
+        assertNull(TaskETags.expectedVersion(null));
+        assertNull(TaskETags.expectedVersion("*"));
+    }
+
+    @Test
+    void rejectsIfMatchThatCannotMatch() {
+        assertThrows(TaskVersionMismatchException.class, () -> TaskETags.expectedVersion("W/\"3\""));
+        assertThrows(TaskVersionMismatchException.class, () -> TaskETags.expectedVersion("\"1\", \"3\""));
+        assertThrows(TaskVersionMismatchException.class, () -> TaskETags.expectedVersion("3"));
+        assertThrows(TaskVersionMismatchException.class, () -> TaskETags.expectedVersion("\"\""));
+        assertThrows(TaskVersionMismatchException.class, () -> TaskETags.expectedVersion("\"abc\""));
+    }
+}
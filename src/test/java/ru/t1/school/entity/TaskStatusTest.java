@@ -0,0 +1,45 @@
+package ru.t1.school.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskStatusTest {
+
+    @Test
+    void allowsForwardAndBackwardTransitions() {
+        assertTrue(TaskStatus.canChange("NEW", TaskStatus.IN_PROGRESS));
+        assertTrue(TaskStatus.canChange("IN_PROGRESS", TaskStatus.NEW));
+        assertTrue(TaskStatus.canChange("IN_PROGRESS", TaskStatus.DONE));
+        assertTrue(TaskStatus.canChange("DONE", TaskStatus.IN_PROGRESS));
+    }
+
+    @Test
+    void rejectsSkippedAndSameStatusTransitions() {
+        assertFalse(TaskStatus.canChange("NEW", TaskStatus.DONE));
+        assertFalse(TaskStatus.canChange("DONE", TaskStatus.NEW));
+        assertFalse(TaskStatus.canChange("NEW", TaskStatus.NEW));
+        assertFalse(TaskStatus.canChange("IN_PROGRESS", TaskStatus.IN_PROGRESS));
+        assertFalse(TaskStatus.canChange("DONE", TaskStatus.DONE));
+    }
+
+    @Test
+    void allowsAnyTransitionFromLegacyStatus() {
+        for (TaskStatus target : TaskStatus.values()) {
+            assertTrue(TaskStatus.canChange("UPDATE", target));
+            assertTrue(TaskStatus.canChange(null, target));
+        }
+    }
+
+    @Test
+    void parsesOnlyExactNames() {
+        assertEquals(Optional.of(TaskStatus.IN_PROGRESS), TaskStatus.parse("IN_PROGRESS"));
+        assertEquals(Optional.empty(), TaskStatus.parse("in_progress"));
+        assertEquals(Optional.empty(), TaskStatus.parse("UPDATE"));
+        assertEquals(Optional.empty(), TaskStatus.parse(null));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.t1.school.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskStatusBinaryCodecTest {
+
+    @Test
+    void roundTripsAllFields() {
+        TaskStatusDTO taskStatusDTO = new TaskStatusDTO(42L, 7L, "DONE", "IN_PROGRESS", "Задача выполнена", 1_700_000_000_000L, 3L);
+
+        assertEquals(taskStatusDTO, TaskStatusBinaryCodec.decode(TaskStatusBinaryCodec.encode(taskStatusDTO)));
+    }
+
+    @Test
+    void omitsNullFields() {
+        TaskStatusDTO taskStatusDTO = new TaskStatusDTO(null, 7L, "DELETED", null, null, null, null);
+
+        byte[] data = TaskStatusBinaryCodec.encode(taskStatusDTO);
+
+        assertEquals(taskStatusDTO, TaskStatusBinaryCodec.decode(data));
+        // Версия, taskId (тег, длина, zigzag 14) и status (тег, длина, 7 байт)
+        assertEquals(1 + 3 + 2 + "DELETED".length(), data.length);
+    }
+
+    @Test
+    void encodesEmptyEventAsVersionOnly() {
+        byte[] data = TaskStatusBinaryCodec.encode(new TaskStatusDTO());
+
+        assertArrayEquals(new byte[]{TaskStatusBinaryCodec.VERSION}, data);
+        assertEquals(new TaskStatusDTO(), TaskStatusBinaryCodec.decode(data));
+    }
+
+    @Test
+    void roundTripsNegativeAndExtremeValues() {
+        for (long value : new long[]{0L, -1L, 1L, -64L, 64L, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            TaskStatusDTO taskStatusDTO = new TaskStatusDTO(value, value, "NEW", "", "", value, value);
+
+            assertEquals(taskStatusDTO, TaskStatusBinaryCodec.decode(TaskStatusBinaryCodec.encode(taskStatusDTO)), "value " + value);
+        }
+    }
+
+    @Test
+    void skipsUnknownTag() {
+        byte[] data = {
+                TaskStatusBinaryCodec.VERSION,
+                99, 3, 'x', 'y', 'z', // поле из более новой версии схемы
+                1, 1, 14,             // taskId = 7
+                2, 4, 'D', 'O', 'N', 'E'
+        };
+
+        TaskStatusDTO taskStatusDTO = TaskStatusBinaryCodec.decode(data);
+
+        assertEquals(new TaskStatusDTO(null, 7L, "DONE", null, null, null, null), taskStatusDTO);
+    }
+
+    @Test
+    void rejectsUnsupportedVersion() {
+        assertThrows(SerializationException.class, () -> TaskStatusBinaryCodec.decode(new byte[0]));
+        assertThrows(SerializationException.class, () -> TaskStatusBinaryCodec.decode(new byte[]{2, 1, 1, 14}));
+    }
+
+    @Test
+    void rejectsTruncatedMessage() {
+        byte[] data = TaskStatusBinaryCodec.encode(new TaskStatusDTO(42L, 7L, "DONE", "NEW", "Описание", 1_700_000_000_000L, 3L));
+
+        // Обрезано внутри последнего поля (userId) и сразу после тега первого поля
+        assertThrows(SerializationException.class, () -> TaskStatusBinaryCodec.decode(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(SerializationException.class, () -> TaskStatusBinaryCodec.decode(Arrays.copyOf(data, 2)));
+    }
+
+    @Test
+    void rejectsFieldLongerThanMessage() {
+        assertThrows(SerializationException.class,
+                () -> TaskStatusBinaryCodec.decode(new byte[]{TaskStatusBinaryCodec.VERSION, 2, 10, 'D', 'O', 'N', 'E'}));
+    }
+
+    @Test
+    void rejectsTooLongVarint() {
+        byte[] data = new byte[13];
+        Arrays.fill(data, (byte) 0xFF);
+        data[0] = TaskStatusBinaryCodec.VERSION;
+        data[1] = 1;
+
+        assertThrows(SerializationException.class, () -> TaskStatusBinaryCodec.decode(data));
+    }
+}
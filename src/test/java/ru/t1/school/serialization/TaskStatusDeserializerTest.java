@@ -0,0 +1,46 @@
+package ru.t1.school.serialization;
+
+import org.junit.jupiter.api.Test;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TaskStatusDeserializerTest {
+
+    private final TaskStatusDeserializer deserializer = new TaskStatusDeserializer();
+
+    @Test
+    void readsJson() {
+        byte[] data = "{\"eventId\":42,\"taskId\":7,\"status\":\"DONE\",\"previousStatus\":\"NEW\",\"userId\":3}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(new TaskStatusDTO(42L, 7L, "DONE", "NEW", null, null, 3L), deserializer.deserialize("task-status", data));
+    }
+
+    @Test
+    void readsBinary() {
+        TaskStatusDTO taskStatusDTO = new TaskStatusDTO(42L, 7L, "DONE", "NEW", "Описание", 1_700_000_000_000L, 3L);
+
+        assertEquals(taskStatusDTO, deserializer.deserialize("task-status", TaskStatusBinaryCodec.encode(taskStatusDTO)));
+    }
+
+    @Test
+    void readsSerializerOutputInBothFormats() {
+        TaskStatusDTO taskStatusDTO = new TaskStatusDTO(42L, 7L, "DONE", "NEW", "Описание", 1_700_000_000_000L, 3L);
+
+        for (TaskStatusSerializer.Format format : TaskStatusSerializer.Format.values()) {
+            try (TaskStatusSerializer serializer = new TaskStatusSerializer(format)) {
+                assertEquals(taskStatusDTO, deserializer.deserialize("task-status", serializer.serialize("task-status", taskStatusDTO)),
+                        format.name());
+            }
+        }
+    }
+
+    @Test
+    void returnsNullForTombstone() {
+        assertNull(deserializer.deserialize("task-status", null));
+    }
+}
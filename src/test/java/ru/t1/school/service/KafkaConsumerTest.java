@@ -0,0 +1,67 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import ru.t1.school.dto.TaskStatusDTO;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaConsumerTest {
+
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final TaskStatusTracing taskStatusTracing = mock(TaskStatusTracing.class);
+    private final ProcessedEventStore processedEventStore = mock(ProcessedEventStore.class);
+    private final NotificationRetryRouter retryRouter = mock(NotificationRetryRouter.class);
+    private final KafkaConsumer kafkaConsumer = new KafkaConsumer(notificationService, taskStatusTracing,
+            new SimpleMeterRegistry(), processedEventStore, retryRouter, "test@example.com", 1000, 1000);
+
+    @Test
+    void doesNotMarkDuplicateAsDeliveredWhenFirstCopyFailed() {
+        when(taskStatusTracing.startReceive(any())).thenReturn(mock(Span.class));
+        when(notificationService.sendNotification(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new MailSendException("SMTP server unavailable")));
+        ConsumerRecord<String, TaskStatusDTO> first = record(0, 7L);
+        ConsumerRecord<String, TaskStatusDTO> duplicate = record(1, 7L);
+
+        assertEquals(-1, kafkaConsumer.process(List.of(first, duplicate)));
+
+        verify(notificationService, times(1)).sendNotification(anyString(), anyString(), anyString());
+        verify(processedEventStore).markProcessed(eq(Set.of()));
+        verify(retryRouter).forward(same(first), any());
+        verify(retryRouter, never()).forward(same(duplicate), any());
+    }
+
+    @Test
+    void marksEventDeliveredOnceWhenFirstCopySucceeded() {
+        when(taskStatusTracing.startReceive(any())).thenReturn(mock(Span.class));
+        when(notificationService.sendNotification(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(-1, kafkaConsumer.process(List.of(record(0, 7L), record(1, 7L), record(2, 8L))));
+
+        verify(notificationService, times(2)).sendNotification(anyString(), anyString(), anyString());
+        verify(processedEventStore).markProcessed(eq(Set.of(7L, 8L)));
+        verify(retryRouter, never()).forward(any(), any());
+    }
+
+    private static ConsumerRecord<String, TaskStatusDTO> record(long offset, Long eventId) {
+        return new ConsumerRecord<>("task-status", 0, offset, "1",
+                new TaskStatusDTO(eventId, 1L, "IN_PROGRESS", "NEW", "Task status changed", null, 1L));
+    }
+}
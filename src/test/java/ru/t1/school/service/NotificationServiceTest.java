@@ -0,0 +1,47 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationServiceTest {
+
+    private final SmtpTransportPool transportPool = mock(SmtpTransportPool.class);
+    private final Transport transport = mock(Transport.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationService notificationService = new NotificationService(transportPool, Runnable::run,
+            Tracer.NOOP, meterRegistry, "school@example.com", 1000, 10);
+
+    @Test
+    void failsRemainingDigestsOnUnexpectedError() throws Exception {
+        when(transportPool.getSession()).thenReturn(Session.getInstance(new Properties()));
+        when(transportPool.borrow()).thenReturn(transport);
+        doThrow(new IllegalStateException("Not connected")).when(transport).sendMessage(any(), any());
+        CompletableFuture<Void> first = notificationService.sendNotification("a@example.com", "Subject", "Text");
+        CompletableFuture<Void> second = notificationService.sendNotification("b@example.com", "Subject", "Text");
+
+        notificationService.flush();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, first::get);
+        assertInstanceOf(MailSendException.class, failure.getCause());
+        assertThrows(ExecutionException.class, second::get);
+        assertEquals(0, meterRegistry.get("notification.queue.depth").gauge().value());
+        verify(transportPool).release(transport, false);
+    }
+}
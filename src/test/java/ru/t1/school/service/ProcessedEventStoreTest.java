@@ -0,0 +1,97 @@
+package ru.t1.school.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import ru.t1.school.repository.ProcessedEventRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessedEventStoreTest {
+
+    private final ProcessedEventRepository repository = mock(ProcessedEventRepository.class);
+    private final ProcessedEventStore store = new ProcessedEventStore(repository, new SimpleMeterRegistry(), Duration.ofHours(24), 2);
+
+    @Test
+    void recognizesEventsProcessedByAnotherInstance() {
+        // После перебалансировки событие, обработанное другим экземпляром, есть только в таблице
+        when(repository.findExistingIds(List.of(1L, 2L))).thenReturn(List.of(1L));
+
+        assertEquals(Set.of(1L), store.findProcessed(List.of(1L, 2L)));
+    }
+
+    @Test
+    void skipsDatabaseForRecentlyMarkedEvents() {
+        store.markProcessed(List.of(1L, 2L));
+
+        assertEquals(Set.of(1L, 2L), store.findProcessed(List.of(1L, 2L)));
+        verify(repository, never()).findExistingIds(anyCollection());
+    }
+
+    @Test
+    void checksOnlyEventsMissingFromLru() {
+        store.markProcessed(List.of(1L));
+        when(repository.findExistingIds(List.of(2L, 3L))).thenReturn(List.of(3L));
+
+        assertEquals(Set.of(1L, 3L), store.findProcessed(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void checksDatabaseAfterEventLeavesLru() {
+        store.markProcessed(List.of(1L, 2L, 3L));
+        when(repository.findExistingIds(List.of(1L))).thenReturn(List.of(1L));
+
+        assertEquals(Set.of(1L), store.findProcessed(List.of(1L)));
+        verify(repository).findExistingIds(List.of(1L));
+    }
+
+    @Test
+    void treatsEventsAsNewWhenDatabaseIsUnavailable() {
+        store.markProcessed(List.of(1L));
+        when(repository.findExistingIds(anyCollection())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertEquals(Set.of(1L), store.findProcessed(List.of(1L, 2L)));
+    }
+
+    @Test
+    void recordsProcessedEventsInDatabase() {
+        store.markProcessed(List.of(1L, 2L));
+
+        verify(repository).insertIgnoringDuplicates(eq(List.of(1L, 2L)), any(Instant.class));
+    }
+
+    @Test
+    void keepsEventsInLruWhenDatabaseWriteFails() {
+        when(repository.findExistingIds(anyCollection())).thenReturn(List.of());
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(repository).insertIgnoringDuplicates(anyCollection(), any(Instant.class));
+
+        store.markProcessed(List.of(1L));
+
+        assertTrue(store.findProcessed(List.of(1L)).contains(1L));
+    }
+
+    @Test
+    void deletesRecordsOlderThanRetention() {
+        Instant before = Instant.now().minus(Duration.ofHours(24));
+
+        store.cleanUp();
+
+        verify(repository).deleteProcessedBefore(argThat(cutoff -> !cutoff.isBefore(before)));
+    }
+}
@@ -0,0 +1,187 @@
+package ru.t1.school.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.t1.school.config.CacheConfig;
+import ru.t1.school.datasource.ReplicaRoutingDataSource;
+import ru.t1.school.dto.TaskDTO;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.entity.Task;
+import ru.t1.school.exception.InvalidTaskRequestException;
+import ru.t1.school.exception.TaskNotFoundException;
+import ru.t1.school.exception.TaskStatusTransitionException;
+import ru.t1.school.exception.TaskVersionMismatchException;
+import ru.t1.school.repository.OutboxEventRepository;
+import ru.t1.school.repository.TaskRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskServiceTest {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.TASKS_CACHE);
+    private final TaskService taskService = new TaskService(taskRepository, outboxEventRepository,
+            mock(TaskStatusTracing.class), entityManager, 50, 500, 500, 500, cacheManager);
+
+    @Test
+    void rejectsUnknownStatusOnCreate() {
+        TaskDTO task = new TaskDTO(null, "Task 1", "Description 1", 1L, "whatever", null);
+
+        assertThrows(TaskStatusTransitionException.class, () -> taskService.createTask(task));
+        assertThrows(TaskStatusTransitionException.class, () -> taskService.createTasks(List.of(task)));
+        verify(taskRepository, never()).save(any());
+        verify(taskRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void rejectsStaleExpectedVersion() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task(4L)));
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.updateTask(1L, update(), 3L));
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void reportsConcurrentUpdateAsPreconditionFailureWithIfMatch() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task(3L)));
+        when(taskRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.updateTask(1L, update(), 3L));
+    }
+
+    @Test
+    void reportsConcurrentUpdateAsConflictWithoutIfMatch() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task(3L)));
+        when(taskRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> taskService.updateTask(1L, update(), null));
+    }
+
+    @Test
+    void reportsConcurrentPatchAsPreconditionFailureWithIfMatch() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task(3L)));
+        when(taskRepository.saveAndFlush(any())).thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+        TaskPatchDTO patch = new TaskPatchDTO(Optional.of("Patched"), null, null, null);
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.patchTask(1L, patch, 3L));
+    }
+
+    @Test
+    void reportsConcurrentDeleteAsPreconditionFailureWithIfMatch() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task(3L)));
+        doThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L)).when(taskRepository).flush();
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.deleteTask(1L, 3L));
+        verify(outboxEventRepository, never()).save(any());
+    }
+
+    @Test
+    void reportsMissingTaskAsNotFound() {
+        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(TaskNotFoundException.class, () -> taskService.getTaskById(1L));
+        assertThrows(TaskNotFoundException.class, () -> taskService.getTaskVersion(1L));
+        assertThrows(TaskNotFoundException.class, () -> taskService.updateTask(1L, update(), 3L));
+        assertThrows(TaskNotFoundException.class, () -> taskService.patchTask(1L, new TaskPatchDTO(), 3L));
+        assertThrows(TaskNotFoundException.class, () -> taskService.deleteTask(1L, 3L));
+    }
+
+    @Test
+    void readsVersionFromCacheOutsideReadYourWritesWindow() {
+        TaskDTO cached = update();
+        cached.setVersion(2L);
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(1L, cached);
+
+        assertEquals(2L, taskService.getTaskVersion(1L));
+        verify(taskRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void bypassesCacheWithinReadYourWritesWindow() {
+        TaskDTO stale = update();
+        stale.setVersion(2L);
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(1L, stale);
+        when(taskRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        ReplicaRoutingDataSource.requirePrimary();
+        try {
+            assertEquals(3L, taskService.getTaskVersion(1L));
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryRequirement();
+        }
+    }
+
+    @Test
+    void reportsMissingTaskInBulkUpdateAsNotFound() {
+        when(taskRepository.findAllById(any())).thenReturn(List.of(task(3L)));
+        TaskDTO missing = new TaskDTO(2L, "Task 2", "Description 2", 1L, null, null);
+
+        assertThrows(TaskNotFoundException.class, () -> taskService.updateTasks(List.of(update(1L), missing)));
+        verify(outboxEventRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void rejectsBulkUpdateWithoutTaskId() {
+        assertThrows(InvalidTaskRequestException.class, () -> taskService.updateTasks(List.of(update(1L), update())));
+        verify(taskRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void rejectsBulkUpdateWithStaleVersion() {
+        when(taskRepository.findAllById(any())).thenReturn(List.of(task(4L)));
+        TaskDTO stale = update(1L);
+        stale.setVersion(3L);
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.updateTasks(List.of(stale)));
+        verify(outboxEventRepository, never()).saveAll(any());
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    void reportsConcurrentBulkUpdateAsPreconditionFailureWithVersion() {
+        when(taskRepository.findAllById(any())).thenReturn(List.of(task(3L)));
+        doThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L)).when(entityManager).flush();
+        TaskDTO taskDTO = update(1L);
+        taskDTO.setVersion(3L);
+
+        assertThrows(TaskVersionMismatchException.class, () -> taskService.updateTasks(List.of(taskDTO)));
+    }
+
+    @Test
+    void reportsConcurrentBulkUpdateAsConflictWithoutVersion() {
+        when(taskRepository.findAllById(any())).thenReturn(List.of(task(3L)));
+        doThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L)).when(entityManager).flush();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> taskService.updateTasks(List.of(update(1L))));
+    }
+
+    private static TaskDTO update(Long id) {
+        TaskDTO taskDTO = update();
+        taskDTO.setId(id);
+        return taskDTO;
+    }
+
+    private static Task task(Long version) {
+        return new Task(1L, "Task 1", "Description 1", 1L, "NEW", version);
+    }
+
+    private static TaskDTO update() {
+        return new TaskDTO(null, "Updated Task 1", "Description 1", 1L, null, null);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.t1.school.service;
+
+import org.junit.jupiter.api.Test;
+import ru.t1.school.dto.TaskPatchDTO;
+import ru.t1.school.entity.Task;
+import ru.t1.school.exception.TaskStatusTransitionException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskUpdatesTest {
+
+    @Test
+    void leavesAbsentFieldsUnchanged() {
+        Task task = task("NEW");
+
+        assertFalse(TaskUpdates.patch(task, new TaskPatchDTO()));
+        assertEquals("Task 1", task.getTitle());
+        assertEquals("Description 1", task.getDescription());
+        assertEquals(1L, task.getUserId());
+        assertEquals("NEW", task.getStatus());
+    }
+
+    @Test
+    void clearsFieldPassedAsNull() {
+        Task task = task("NEW");
+
+        assertTrue(TaskUpdates.patch(task, new TaskPatchDTO(null, Optional.empty(), null, null)));
+        assertNull(task.getDescription());
+        assertEquals("Task 1", task.getTitle());
+    }
+
+    @Test
+    void setsFieldPassedWithValue() {
+        Task task = task("NEW");
+
+        assertTrue(TaskUpdates.patch(task, new TaskPatchDTO(Optional.of("Patched"), null, Optional.of(2L), null)));
+        assertEquals("Patched", task.getTitle());
+        assertEquals(2L, task.getUserId());
+        assertEquals("Description 1", task.getDescription());
+    }
+
+    @Test
+    void reportsNoChangeForEqualValues() {
+        Task task = task("NEW");
+
+        assertFalse(TaskUpdates.patch(task, new TaskPatchDTO(Optional.of("Task 1"), Optional.of("Description 1"),
+                Optional.of(1L), Optional.of("NEW"))));
+    }
+
+    @Test
+    void changesStatusByAllowedTransition() {
+        Task task = task("NEW");
+
+        assertTrue(TaskUpdates.patch(task, new TaskPatchDTO(null, null, null, Optional.of("IN_PROGRESS"))));
+        assertEquals("IN_PROGRESS", task.getStatus());
+    }
+
+    @Test
+    void rejectsDisallowedUnknownAndNullStatus() {
+        Task task = task("NEW");
+
+        assertThrows(TaskStatusTransitionException.class,
+                () -> TaskUpdates.patch(task, new TaskPatchDTO(null, null, null, Optional.of("DONE"))));
+        assertThrows(TaskStatusTransitionException.class,
+                () -> TaskUpdates.patch(task, new TaskPatchDTO(null, null, null, Optional.of("UPDATE"))));
+        assertThrows(TaskStatusTransitionException.class,
+                () -> TaskUpdates.patch(task, new TaskPatchDTO(null, null, null, Optional.empty())));
+        assertEquals("NEW", task.getStatus());
+    }
+
+    @Test
+    void defaultsInitialStatusAndRejectsUnknown() {
+        assertEquals("NEW", TaskUpdates.initialStatus(null));
+        assertEquals("DONE", TaskUpdates.initialStatus("DONE"));
+        assertThrows(TaskStatusTransitionException.class, () -> TaskUpdates.initialStatus("whatever"));
+    }
+
+    private static Task task(String status) {
+        return new Task(1L, "Task 1", "Description 1", 1L, status, 0L);
+    }
+}